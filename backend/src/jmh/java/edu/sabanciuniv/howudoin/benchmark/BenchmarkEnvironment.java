@@ -0,0 +1,61 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import edu.sabanciuniv.howudoin.HowudoinApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Embedded mongod plus the full application context, started once per benchmark trial
+public class BenchmarkEnvironment implements AutoCloseable {
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(String... extraProperties) {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.data.mongodb.host=" + address.getHost(),
+                "spring.data.mongodb.port=" + address.getPort(),
+                "spring.data.mongodb.database=howudoin-benchmark",
+                "server.port=0",
+                "management.server.port=0",
+                "logging.level.root=WARN"
+        ));
+        properties.addAll(List.of(extraProperties));
+
+        context = new SpringApplicationBuilder(HowudoinApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    public static BenchmarkEnvironment start(String... extraProperties) {
+        return new BenchmarkEnvironment(extraProperties);
+    }
+
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public DatasetSeeder seeder() {
+        return new DatasetSeeder(context);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        mongod.close();
+    }
+}
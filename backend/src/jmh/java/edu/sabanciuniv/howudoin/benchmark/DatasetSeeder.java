@@ -0,0 +1,163 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.model.User;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+// Writes synthetic data straight through MongoTemplate so seeding does not skew the measured paths
+public class DatasetSeeder {
+
+    private static final int BATCH_SIZE = 5000;
+    public static final int VOCABULARY_SIZE = 20000;
+    private static final int WORDS_PER_MESSAGE = 8;
+
+    private final MongoTemplate mongoTemplate;
+
+    DatasetSeeder(ApplicationContext context) {
+        this.mongoTemplate = context.getBean(MongoTemplate.class);
+    }
+
+    public static String email(String prefix, int index) {
+        return prefix + index + "@bench.local";
+    }
+
+    public User user(String email, Set<String> friends) {
+        return user(email, friends, "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchma");
+    }
+
+    public User user(String email, Set<String> friends, String encodedPassword) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("First " + email);
+        user.setLastName("Last " + email);
+        user.setPassword(encodedPassword);
+        user.setFriends(friends);
+        return mongoTemplate.insert(user);
+    }
+
+    // Creates 'owner' with friendCount friends, each of whom has 'owner' as a friend
+    public User userWithFriends(String owner, int friendCount) {
+        Set<String> friends = new HashSet<>();
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < friendCount; i++) {
+            String friendEmail = email(owner + "-friend", i);
+            friends.add(friendEmail);
+
+            User friend = new User();
+            friend.setEmail(friendEmail);
+            friend.setFirstName("Friend");
+            friend.setLastName(String.valueOf(i));
+            friend.setPassword("$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchma");
+            friend.setFriends(new HashSet<>(Set.of(owner)));
+            batch.add(friend);
+            if (batch.size() == BATCH_SIZE) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insertAll(batch);
+        return user(owner, friends);
+    }
+
+    public void conversation(String userA, String userB, int messageCount) {
+        conversation(userA, userB, messageCount, i -> "Benchmark message " + i);
+    }
+
+    // Same, with content drawn from a skewed vocabulary so some words are common and most are rare
+    public void wordyConversation(String userA, String userB, int messageCount, long seed) {
+        Random random = new Random(seed);
+        conversation(userA, userB, messageCount, i -> sentence(random));
+    }
+
+    public void wordyBackgroundMessages(int messageCount, long seed) {
+        Random random = new Random(seed);
+        int users = Math.max(2, messageCount / 100);
+        int perPair = Math.max(1, messageCount / users);
+        for (int i = 0; i + 1 < users; i += 2) {
+            conversation(email("background", i), email("background", i + 1), perPair, n -> sentence(random));
+        }
+    }
+
+    // Word k is "word" + k; low k are far more frequent
+    public static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+            if (w > 0) {
+                sentence.append(' ');
+            }
+            sentence.append("word").append((int) (VOCABULARY_SIZE * Math.pow(random.nextDouble(), 3)));
+        }
+        return sentence.toString();
+    }
+
+    private void conversation(String userA, String userB, int messageCount, IntFunction<String> content) {
+        LocalDateTime start = LocalDateTime.now().minusSeconds(messageCount);
+        List<Message> batch = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            boolean fromA = i % 2 == 0;
+            Message message = new Message();
+            message.setSenderId(fromA ? userA : userB);
+            message.setRecipientId(fromA ? userB : userA);
+            message.setConversationId(Message.conversationKey(userA, userB));
+            message.setContent(content.apply(i));
+            message.setTimestamp(start.plusSeconds(i));
+            batch.add(message);
+            if (batch.size() == BATCH_SIZE) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insertAll(batch);
+    }
+
+    public Group group(String name, Set<String> members, int messageCount) {
+        Group group = new Group();
+        group.setName(name);
+        group.setCreatorId(members.iterator().next());
+        group.setMembers(members);
+        group.setCreatedAt(LocalDateTime.now());
+        group.setUpdatedAt(LocalDateTime.now());
+        group = mongoTemplate.insert(group);
+
+        LocalDateTime start = LocalDateTime.now().minusSeconds(messageCount);
+        List<String> senders = new ArrayList<>(members);
+        List<Message> batch = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            Message message = new Message();
+            message.setSenderId(senders.get(i % senders.size()));
+            message.setGroupId(group.getId());
+            message.setGroupMessage(true);
+            message.setContent("Benchmark group message " + i);
+            message.setTimestamp(start.plusSeconds(i));
+            batch.add(message);
+            if (batch.size() == BATCH_SIZE) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insertAll(batch);
+        return group;
+    }
+
+    // Unrelated traffic, so queries that scan the collection would pay for it
+    public void backgroundMessages(int messageCount) {
+        conversationsAmong("background", Math.max(2, messageCount / 100), messageCount);
+    }
+
+    private void conversationsAmong(String prefix, int users, int messageCount) {
+        int perPair = Math.max(1, messageCount / users);
+        for (int i = 0; i + 1 < users; i += 2) {
+            conversation(email(prefix, i), email(prefix, i + 1), perPair);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.service.FriendGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Pure in-memory lookups, no Mongo; compare with FriendServiceBenchmark for the per-request user loads this replaces
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FriendGraphBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int userCount;
+
+    @Param({"20", "200"})
+    public int friendsPerUser;
+
+    private FriendGraph graph;
+    private String[] emails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emails = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            emails[i] = DatasetSeeder.email("user", i);
+        }
+
+        System.gc();
+        long heapBefore = usedHeap();
+
+        // Friends of user i are its next friendsPerUser neighbours, both ways, so hits are cheap to generate
+        graph = new FriendGraph();
+        List<String> friends = new ArrayList<>(2 * friendsPerUser);
+        for (int i = 0; i < userCount; i++) {
+            friends.clear();
+            for (int d = 1; d <= friendsPerUser; d++) {
+                friends.add(emails[Math.floorMod(i + d, userCount)]);
+                friends.add(emails[Math.floorMod(i - d, userCount)]);
+            }
+            graph.setFriends(emails[i], friends);
+        }
+
+        System.gc();
+        long heapDelta = usedHeap() - heapBefore;
+        double millionEdges = graph.edgeCount() / 1_000_000.0;
+        System.out.printf("%n%d users, %d friendships: estimated %d MiB, heap delta %d MiB (%.1f MiB per million friendships)%n",
+                graph.userCount(), graph.edgeCount(), graph.estimatedBytes() >> 20, heapDelta >> 20,
+                (heapDelta >> 20) / millionEdges);
+    }
+
+    @Benchmark
+    public boolean areFriendsHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(userCount);
+        int friend = Math.floorMod(user + 1 + random.nextInt(friendsPerUser), userCount);
+        return graph.contains(emails[user], emails[friend]);
+    }
+
+    @Benchmark
+    public boolean areFriendsMiss() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(userCount);
+        int stranger = Math.floorMod(user + friendsPerUser + 1 + random.nextInt(userCount / 2), userCount);
+        return graph.contains(emails[user], emails[stranger]);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,40 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.dto.UserDto;
+import edu.sabanciuniv.howudoin.service.FriendService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Latency of GET /friends as the friend count grows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FriendServiceBenchmark {
+
+    private static final String USER = "alice@bench.local";
+
+    @Param({"10", "100", "500", "1000", "5000"})
+    public int friendCount;
+
+    private BenchmarkEnvironment environment;
+    private FriendService friendService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        environment.seeder().userWithFriends(USER, friendCount);
+        friendService = environment.bean(FriendService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<UserDto> friendListWithDetails() {
+        return friendService.getFriendListWithDetails(USER);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.service.GroupFanoutService;
+import edu.sabanciuniv.howudoin.service.GroupService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Cost of sending to, and of a member opening, groups of 10 to 10,000 members.
+// writeThreshold=100000 forces fan-out on write at every size; the default 256 switches large groups to fan-out on read.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupFanoutBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int memberCount;
+
+    @Param({"256", "100000"})
+    public int writeThreshold;
+
+    private BenchmarkEnvironment environment;
+    private GroupService groupService;
+    private String groupId;
+    private String sender;
+    private String reader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start("fanout.write-threshold=" + writeThreshold);
+
+        Set<String> members = new HashSet<>();
+        for (int i = 0; i < memberCount; i++) {
+            members.add(DatasetSeeder.email("member", i));
+        }
+        sender = DatasetSeeder.email("member", 0);
+        reader = DatasetSeeder.email("member", 1);
+        Group group = environment.seeder().group("Fan-out group", members, 1000);
+        environment.bean(GroupFanoutService.class).syncMode(group); // the seeder writes groups directly
+        groupId = group.getId();
+        groupService = environment.bean(GroupService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public Message send() {
+        return groupService.sendGroupMessage(sender, groupId, "Fan-out benchmark message");
+    }
+
+    @Benchmark
+    public List<MessageResponse> openGroup() {
+        return groupService.getGroupMessages(groupId, reader, null, 50);
+    }
+
+    @Benchmark
+    public Map<String, Long> unreadCounts() {
+        return groupService.getUnreadCounts(reader);
+    }
+}
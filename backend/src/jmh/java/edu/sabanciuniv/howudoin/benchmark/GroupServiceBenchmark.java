@@ -0,0 +1,50 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.service.GroupService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupServiceBenchmark {
+
+    @Param({"10", "1000"})
+    public int memberCount;
+
+    @Param({"1000", "100000"})
+    public int messageCount;
+
+    private BenchmarkEnvironment environment;
+    private GroupService groupService;
+    private String groupId;
+    private String member;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+
+        Set<String> members = new HashSet<>();
+        for (int i = 0; i < memberCount; i++) {
+            members.add(DatasetSeeder.email("member", i));
+        }
+        member = DatasetSeeder.email("member", 0);
+        groupId = environment.seeder().group("Benchmark group", members, messageCount).getId();
+        groupService = environment.bean(GroupService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<MessageResponse> groupMessagesFirstPage() {
+        return groupService.getGroupMessages(groupId, member, null, 50);
+    }
+}
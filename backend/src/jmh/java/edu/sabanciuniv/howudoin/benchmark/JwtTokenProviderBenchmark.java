@@ -0,0 +1,36 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.security.JwtProperties;
+import edu.sabanciuniv.howudoin.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Pure CPU: no database or application context needed
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        tokenProvider = new JwtTokenProvider(properties);
+        token = tokenProvider.generateToken("alice@bench.local");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken("alice@bench.local");
+    }
+
+    @Benchmark
+    public Claims validateToken() {
+        return tokenProvider.parseClaims(token);
+    }
+}
@@ -0,0 +1,58 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.controller.AuthController;
+import edu.sabanciuniv.howudoin.dto.LoginRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+// Successful logins per second with every core calling in; the password hashing pool caps how many hash at once,
+// so logins/s per core is the score divided by hashingThreads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+public class LoginBenchmark {
+
+    private static final String USER = "alice@bench.local";
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"10", "12"})
+    public int bcryptStrength;
+
+    @Param({"1", "4"})
+    public int hashingThreads;
+
+    private BenchmarkEnvironment environment;
+    private AuthController authController;
+    private LoginRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(
+                "password.bcrypt-strength=" + bcryptStrength,
+                "password.threads=" + hashingThreads,
+                "password.queue-capacity=" + Runtime.getRuntime().availableProcessors()
+        );
+        String encodedPassword = environment.bean(PasswordEncoder.class).encode(PASSWORD);
+        environment.seeder().user(USER, new HashSet<>(), encodedPassword);
+        authController = environment.bean(AuthController.class);
+
+        request = new LoginRequest();
+        request.setEmail(USER);
+        request.setPassword(PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> login() {
+        return authController.login(request).join();
+    }
+}
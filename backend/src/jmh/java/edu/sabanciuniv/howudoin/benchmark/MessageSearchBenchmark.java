@@ -0,0 +1,69 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.dto.MessageSearchResponse;
+import edu.sabanciuniv.howudoin.service.MessageSearchService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Search latency for one user's conversation inside a large messages collection.
+// The text index is collection-wide, so common words cost more than rare ones however small the caller's scope is.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageSearchBenchmark {
+
+    private static final String USER = "alice@bench.local";
+    private static final String OTHER = "bob@bench.local";
+    private static final String COMMON_WORD = "word0";
+    private static final String RARE_WORD = "word" + (DatasetSeeder.VOCABULARY_SIZE - 1);
+
+    @Param({"1000000", "10000000"})
+    public int totalMessages;
+
+    @Param({"10000"})
+    public int conversationMessages;
+
+    private BenchmarkEnvironment environment;
+    private MessageSearchService searchService;
+    private String commonWordSecondPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        DatasetSeeder seeder = environment.seeder();
+        seeder.user(USER, new HashSet<>(Set.of(OTHER)));
+        seeder.user(OTHER, new HashSet<>(Set.of(USER)));
+        seeder.wordyConversation(USER, OTHER, conversationMessages, 1);
+        seeder.wordyBackgroundMessages(totalMessages - conversationMessages, 2);
+        searchService = environment.bean(MessageSearchService.class);
+        commonWordSecondPage = searchService.search(USER, COMMON_WORD, null, 20).getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public MessageSearchResponse searchCommonWord() {
+        return searchService.search(USER, COMMON_WORD, null, 20);
+    }
+
+    @Benchmark
+    public MessageSearchResponse searchCommonWordNextPage() {
+        return searchService.search(USER, COMMON_WORD, commonWordSecondPage, 20);
+    }
+
+    @Benchmark
+    public MessageSearchResponse searchRareWord() {
+        return searchService.search(USER, RARE_WORD, null, 20);
+    }
+
+    @Benchmark
+    public MessageSearchResponse searchTwoWords() {
+        return searchService.search(USER, COMMON_WORD + " " + RARE_WORD, null, 20);
+    }
+}
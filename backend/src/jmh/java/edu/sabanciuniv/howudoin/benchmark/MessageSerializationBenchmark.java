@@ -0,0 +1,65 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Message;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageSerializationBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    public int messageCount;
+
+    private ObjectMapper objectMapper;
+    private List<Message> messages;
+    private List<MessageResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        // Same defaults as the ObjectMapper Spring Boot configures for the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        messages = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < messageCount; i++) {
+            Message message = new Message();
+            message.setId(String.format("%024x", i));
+            message.setSenderId("alice@bench.local");
+            message.setRecipientId("bob@bench.local");
+            message.setConversationId(Message.conversationKey("alice@bench.local", "bob@bench.local"));
+            message.setContent("Benchmark message " + i);
+            message.setTimestamp(now.minusSeconds(i));
+            message.setRead(true);
+            message.setReadAt(now.minusSeconds(i - 1));
+            messages.add(message);
+        }
+        responses = messages.stream().map(MessageResponse::from).toList();
+
+        // Bytes on the wire per response body, before compression
+        int entityBytes = objectMapper.writeValueAsBytes(messages).length;
+        int responseBytes = objectMapper.writeValueAsBytes(responses).length;
+        System.out.printf("%n%d messages: entity %d bytes, response DTO %d bytes (%d saved, %.1f%%)%n",
+                messageCount, entityBytes, responseBytes, entityBytes - responseBytes,
+                100.0 * (entityBytes - responseBytes) / entityBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeMessages() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] serializeResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+}
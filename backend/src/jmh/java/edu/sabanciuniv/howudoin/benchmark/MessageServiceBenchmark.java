@@ -0,0 +1,61 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.repository.MessageRepository;
+import edu.sabanciuniv.howudoin.service.MessageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageServiceBenchmark {
+
+    private static final String USER = "alice@bench.local";
+    private static final String OTHER = "bob@bench.local";
+
+    @Param({"1000", "100000"})
+    public int conversationMessages;
+
+    @Param({"100000"})
+    public int backgroundMessages;
+
+    private BenchmarkEnvironment environment;
+    private MessageService messageService;
+    private MessageRepository messageRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start();
+        DatasetSeeder seeder = environment.seeder();
+        seeder.user(USER, new HashSet<>(Set.of(OTHER)));
+        seeder.user(OTHER, new HashSet<>(Set.of(USER)));
+        seeder.conversation(USER, OTHER, conversationMessages);
+        seeder.backgroundMessages(backgroundMessages);
+        messageService = environment.bean(MessageService.class);
+        messageRepository = environment.bean(MessageRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<MessageResponse> conversationHistoryFirstPage() {
+        return messageService.getConversationHistory(USER, OTHER, null, 50);
+    }
+
+    // Same page read as full documents, for comparison with the projected read above
+    @Benchmark
+    public List<Message> conversationHistoryFirstPageEntities() {
+        return messageRepository.findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(
+                Message.conversationKey(USER, OTHER), PageRequest.of(0, 50), Message.class);
+    }
+}
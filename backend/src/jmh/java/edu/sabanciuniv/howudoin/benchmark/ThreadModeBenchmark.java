@@ -0,0 +1,193 @@
+package edu.sabanciuniv.howudoin.benchmark;
+
+import edu.sabanciuniv.howudoin.security.JwtTokenProvider;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Time to complete a burst of N simultaneous history requests, platform vs virtual request threads.
+// With platform threads, bursts above server.tomcat.threads.max (200) queue; run with -prof gc for allocation per request.
+// The client runs in its own process, so the threads and RSS reported below belong to the server alone. RSS and the
+// number of requests the server is handling at once are sampled while the measurement iterations run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModeBenchmark {
+
+    private static final String USER = "alice@bench.local";
+    private static final String OTHER = "bob@bench.local";
+    private static final long SAMPLE_INTERVAL_MS = 10;
+
+    @Param({"platform", "virtual"})
+    public String threadMode;
+
+    @Param({"100", "1000", "4000"})
+    public int inFlight;
+
+    private BenchmarkEnvironment environment;
+    private Process client;
+    private PrintWriter clientCommands;
+    private BufferedReader clientResults;
+    private long baselineMemory;
+    private int baselineThreads;
+
+    private Thread sampler;
+    private volatile boolean sampling;
+    private volatile long peakMemory;
+    private volatile long peakActiveRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(
+                "spring.threads.virtual.enabled=" + "virtual".equals(threadMode),
+                "server.tomcat.max-connections=" + (inFlight * 2)
+        );
+        DatasetSeeder seeder = environment.seeder();
+        seeder.user(USER, new HashSet<>(Set.of(OTHER)));
+        seeder.user(OTHER, new HashSet<>(Set.of(USER)));
+        seeder.conversation(USER, OTHER, 1000);
+
+        String token = environment.bean(JwtTokenProvider.class).generateToken(USER);
+        String url = "http://localhost:" + environment.port() + "/messages?otherEmail=" + OTHER;
+        String java = ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        client = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), BurstClient.class.getName(), url, token, String.valueOf(inFlight))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        clientCommands = new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8);
+        clientResults = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+
+        System.gc();
+        baselineMemory = usedMemory();
+        baselineThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    @Setup(Level.Iteration)
+    public void startSampling(IterationParams iteration) {
+        if (iteration.getType() != IterationType.MEASUREMENT) {
+            return;
+        }
+        MeterRegistry registry = environment.bean(MeterRegistry.class);
+        sampling = true;
+        sampler = Thread.ofPlatform().daemon().name("thread-mode-sampler").start(() -> {
+            while (sampling) {
+                peakMemory = Math.max(peakMemory, usedMemory());
+                // Registered by the HTTP server observation once the first request arrives
+                LongTaskTimer active = registry.find("http.server.requests.active").longTaskTimer();
+                if (active != null) {
+                    peakActiveRequests = Math.max(peakActiveRequests, active.activeTasks());
+                }
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopSampling() throws InterruptedException {
+        if (sampler != null) {
+            sampling = false;
+            sampler.join();
+            sampler = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        clientCommands.println("exit");
+        client.waitFor(10, TimeUnit.SECONDS);
+        client.destroy();
+
+        int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        long memoryDelta = Math.max(0, peakMemory - baselineMemory);
+        System.out.printf("%n[%s, inFlight=%d] peak live threads %d (+%d), peak requests in flight %d, peak memory delta %.1f KiB per in-flight request%n",
+                threadMode, inFlight, peakThreads, peakThreads - baselineThreads, peakActiveRequests, memoryDelta / 1024.0 / inFlight);
+        environment.close();
+    }
+
+    @Benchmark
+    public int burst() throws IOException {
+        clientCommands.println("burst");
+        String ok = clientResults.readLine();
+        if (ok == null) {
+            throw new IllegalStateException("Burst client exited");
+        }
+        return Integer.parseInt(ok);
+    }
+
+    // Resident set size where /proc is available, since platform thread stacks live outside the heap
+    private static long usedMemory() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Fall back to JVM-managed memory below
+        }
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        return heap.getUsed() + nonHeap.getUsed();
+    }
+
+    // Sends one burst per "burst" line on stdin and answers with the number of 200 responses; "exit" stops it
+    public static final class BurstClient {
+
+        public static void main(String[] args) throws IOException {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(args[0]))
+                    .header("Authorization", "Bearer " + args[1])
+                    .GET()
+                    .build();
+            int inFlight = Integer.parseInt(args[2]);
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String command;
+            while ((command = commands.readLine()) != null && command.equals("burst")) {
+                List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(inFlight);
+                for (int i = 0; i < inFlight; i++) {
+                    responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+                }
+
+                int ok = 0;
+                for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                    if (response.join().statusCode() == 200) {
+                        ok++;
+                    }
+                }
+                System.out.println(ok);
+                System.out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// Thin HTTP client for the REST API; every call is timed under a stable endpoint name
+public class HowudoinClient {
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyRecorder recorder;
+
+    public HowudoinClient(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public Session register(String email, String password) {
+        Response response = post("POST /register", "/register", null, Map.of(
+                "firstName", "Load",
+                "lastName", "Tester",
+                "email", email,
+                "password", password
+        ));
+        return Session.from(this, response.body());
+    }
+
+    public Session login(String email, String password) {
+        Response response = post("POST /login", "/login", null, Map.of("email", email, "password", password));
+        return Session.from(this, response.body());
+    }
+
+    public JsonNode refresh(String refreshToken) {
+        return post("POST /refresh", "/refresh", null, Map.of("refreshToken", refreshToken)).body();
+    }
+
+    public boolean sendFriendRequest(String token, String email) {
+        return post("POST /friends/add", "/friends/add", token, Map.of("email", email)).success();
+    }
+
+    public boolean acceptFriendRequest(String token, String email) {
+        return post("POST /friends/accept", "/friends/accept", token, Map.of("email", email)).success();
+    }
+
+    public JsonNode getFriends(String token) {
+        return get("GET /friends", "/friends", token).body();
+    }
+
+    public JsonNode getPendingRequests(String token) {
+        return get("GET /friends/pending", "/friends/pending", token).body();
+    }
+
+    public String createGroup(String token, String name, List<String> memberEmails) {
+        Response response = post("POST /groups/create", "/groups/create", token, Map.of("name", name, "memberEmails", memberEmails));
+        return response.success() && response.body() != null ? response.body().path("id").asText(null) : null;
+    }
+
+    public JsonNode getGroups(String token) {
+        return get("GET /groups", "/groups", token).body();
+    }
+
+    public void sendGroupMessage(String token, String groupId, String content) {
+        post("POST /groups/{id}/send", "/groups/" + groupId + "/send", token, Map.of("content", content));
+    }
+
+    public JsonNode getGroupMessages(String token, String groupId) {
+        return get("GET /groups/{id}/messages", "/groups/" + groupId + "/messages", token).body();
+    }
+
+    public JsonNode getGroupMembers(String token, String groupId) {
+        return get("GET /groups/{id}/members", "/groups/" + groupId + "/members", token).body();
+    }
+
+    public void sendMessage(String token, String recipientEmail, String content) {
+        post("POST /messages/send", "/messages/send", token, Map.of("recipientEmail", recipientEmail, "content", content));
+    }
+
+    public JsonNode getConversation(String token, String otherEmail) {
+        return get("GET /messages", "/messages?otherEmail=" + encode(otherEmail), token).body();
+    }
+
+    public void markConversationRead(String token, String otherEmail) {
+        post("POST /messages/read", "/messages/read?otherEmail=" + encode(otherEmail), token, Map.of());
+    }
+
+    public JsonNode getUnreadCount(String token) {
+        return get("GET /messages/unread/count", "/messages/unread/count", token).body();
+    }
+
+    public JsonNode getRecentConversations(String token) {
+        return get("GET /messages/recent", "/messages/recent", token).body();
+    }
+
+    private Response get(String endpoint, String path, String token) {
+        return send(endpoint, request(path, token).GET().build());
+    }
+
+    private Response post(String endpoint, String path, String token, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return send(endpoint, request(path, token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                    .build());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    // Failures are recorded, not thrown. A 2xx with an empty or unparseable body is still a success, with a null body.
+    private Response send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return Response.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.FAILED;
+        }
+
+        boolean success = response.statusCode() / 100 == 2;
+        recorder.record(endpoint, System.nanoTime() - start, success);
+        if (!success) {
+            return Response.FAILED;
+        }
+        return new Response(true, parse(response.body()));
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private record Response(boolean success, JsonNode body) {
+        static final Response FAILED = new Response(false, null);
+    }
+}
@@ -0,0 +1,59 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint HdrHistogram latencies (microseconds) and error counts
+public class LatencyRecorder {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS);
+        recorders.computeIfAbsent(endpoint, key -> new Recorder(MAX_LATENCY_MICROS, 3)).recordValue(micros);
+        if (!success) {
+            errors.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+        }
+    }
+
+    // Drains the recorded values, so phases (seeding, replay) can be reported separately
+    public void report(String title, double elapsedSeconds, PrintStream out) {
+        Map<String, Histogram> snapshots = new TreeMap<>();
+        recorders.forEach((endpoint, recorder) -> snapshots.put(endpoint, recorder.getIntervalHistogram()));
+
+        out.println();
+        out.println("== " + title + String.format(" (%.1fs)", elapsedSeconds));
+        out.printf("%-34s %9s %9s %9s %9s %9s %9s %7s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+
+        long totalRequests = 0;
+        for (Map.Entry<String, Histogram> entry : snapshots.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long count = histogram.getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+            totalRequests += count;
+            LongAdder errorCount = errors.remove(entry.getKey());
+            out.printf("%-34s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                    entry.getKey(),
+                    count,
+                    count / elapsedSeconds,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    errorCount == null ? 0 : errorCount.sum());
+        }
+        out.printf("%-34s %9d %9.1f%n", "TOTAL", totalRequests, totalRequests / elapsedSeconds);
+    }
+}
@@ -0,0 +1,29 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+// Entry point: ./gradlew loadTest -PloadTestArgs="--users=500 --concurrency=200 --durationSeconds=120"
+public class LoadTest {
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LatencyRecorder recorder = new LatencyRecorder();
+        HowudoinClient client = new HowudoinClient(config.baseUrl(), recorder);
+
+        System.out.println("Load test against " + config.baseUrl() + " with " + config);
+
+        long seedStart = System.nanoTime();
+        SyntheticWorld world = new SocialGraphGenerator(config, client).generate();
+        double seedSeconds = (System.nanoTime() - seedStart) / 1e9;
+        System.out.printf("Generated %d users, %d friendships, %d groups%n",
+                world.users().size(), world.friendshipCount(), world.groups().size());
+        recorder.report("Dataset generation", seedSeconds, System.out);
+
+        if (world.users().isEmpty()) {
+            System.err.println("No users could be registered, is the backend running?");
+            System.exit(1);
+        }
+
+        long replayStart = System.nanoTime();
+        new TrafficReplayer(config, client, world).run();
+        recorder.report("Mixed traffic, " + config.concurrency() + " concurrent users", (System.nanoTime() - replayStart) / 1e9, System.out);
+    }
+}
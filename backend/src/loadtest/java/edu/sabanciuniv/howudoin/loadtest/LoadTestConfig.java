@@ -0,0 +1,39 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Parsed from --key=value arguments, every value has a default suitable for a laptop run
+public record LoadTestConfig(
+        String baseUrl,
+        int users,
+        int averageFriends,
+        int groups,
+        int groupSize,
+        int seedMessagesPerUser,
+        int concurrency,
+        int durationSeconds,
+        long randomSeed
+) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+
+        return new LoadTestConfig(
+                values.getOrDefault("baseUrl", "http://localhost:8080"),
+                Integer.parseInt(values.getOrDefault("users", "200")),
+                Integer.parseInt(values.getOrDefault("averageFriends", "20")),
+                Integer.parseInt(values.getOrDefault("groups", "40")),
+                Integer.parseInt(values.getOrDefault("groupSize", "15")),
+                Integer.parseInt(values.getOrDefault("seedMessagesPerUser", "20")),
+                Integer.parseInt(values.getOrDefault("concurrency", "100")),
+                Integer.parseInt(values.getOrDefault("durationSeconds", "60")),
+                Long.parseLong(values.getOrDefault("randomSeed", "42"))
+        );
+    }
+}
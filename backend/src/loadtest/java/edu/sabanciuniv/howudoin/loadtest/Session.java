@@ -0,0 +1,45 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.TimeUnit;
+
+// One synthetic user's tokens. The access token is renewed through /refresh shortly before it expires, at most once at a time,
+// so runs longer than the access token lifetime keep working and parallel requests never present a refresh token twice.
+public class Session {
+
+    private static final long RENEW_BEFORE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final HowudoinClient client;
+    private String accessToken;
+    private String refreshToken;
+    private long expiresAtNanos;
+
+    private Session(HowudoinClient client) {
+        this.client = client;
+    }
+
+    // Null unless the response carried both tokens
+    static Session from(HowudoinClient client, JsonNode tokens) {
+        Session session = new Session(client);
+        return session.update(tokens) ? session : null;
+    }
+
+    public synchronized String accessToken() {
+        if (System.nanoTime() >= expiresAtNanos - RENEW_BEFORE_NANOS && refreshToken != null) {
+            // On failure keep the old token; its requests fail with 401 and are counted as errors
+            update(client.refresh(refreshToken));
+        }
+        return accessToken;
+    }
+
+    private boolean update(JsonNode tokens) {
+        if (tokens == null || tokens.path("token").isMissingNode() || tokens.path("refreshToken").isMissingNode()) {
+            return false;
+        }
+        accessToken = tokens.path("token").asText();
+        refreshToken = tokens.path("refreshToken").asText();
+        expiresAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(tokens.path("expiresIn").asLong());
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Builds a dataset through the public API: register, befriend (preferential attachment), create groups, seed history
+public class SocialGraphGenerator {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final LoadTestConfig config;
+    private final HowudoinClient client;
+    private final Random random;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public SocialGraphGenerator(LoadTestConfig config, HowudoinClient client) {
+        this.config = config;
+        this.client = client;
+        this.random = new Random(config.randomSeed());
+    }
+
+    public SyntheticWorld generate() {
+        SyntheticWorld world = new SyntheticWorld();
+
+        List<Runnable> registrations = new ArrayList<>();
+        for (int i = 0; i < config.users(); i++) {
+            String email = "lt-" + runId + "-" + i + "@load.test";
+            registrations.add(() -> {
+                Session session = client.register(email, PASSWORD);
+                if (session != null) {
+                    world.addUser(new SyntheticWorld.SyntheticUser(email, session));
+                }
+            });
+        }
+        runConcurrently(registrations);
+
+        List<SyntheticWorld.SyntheticUser> users = world.users();
+        List<Runnable> friendships = new ArrayList<>();
+        for (int[] edge : friendEdges(users.size())) {
+            SyntheticWorld.SyntheticUser sender = users.get(edge[0]);
+            SyntheticWorld.SyntheticUser receiver = users.get(edge[1]);
+            friendships.add(() -> {
+                // Only friendships the server accepted are recorded, so replayed traffic never targets a non-friend
+                if (client.sendFriendRequest(sender.token(), receiver.email())
+                        && client.acceptFriendRequest(receiver.token(), sender.email())) {
+                    world.addFriendship(sender.email(), receiver.email());
+                }
+            });
+        }
+        runConcurrently(friendships);
+
+        List<Runnable> groupCreations = new ArrayList<>();
+        for (int g = 0; g < config.groups() && !users.isEmpty(); g++) {
+            SyntheticWorld.SyntheticUser creator = users.get(random.nextInt(users.size()));
+            List<String> members = sampleMembers(users, creator.email(), config.groupSize() - 1);
+            String name = "Load group " + g;
+            groupCreations.add(() -> {
+                String groupId = client.createGroup(creator.token(), name, members);
+                if (groupId != null) {
+                    List<String> allMembers = new ArrayList<>(members);
+                    allMembers.add(creator.email());
+                    world.addGroup(new SyntheticWorld.SyntheticGroup(groupId, allMembers));
+                }
+            });
+        }
+        runConcurrently(groupCreations);
+
+        List<Runnable> history = new ArrayList<>();
+        for (SyntheticWorld.SyntheticUser user : users) {
+            List<String> friends = world.friendsOf(user.email());
+            List<SyntheticWorld.SyntheticGroup> groups = world.groupsOf(user.email());
+            long seed = random.nextLong();
+            history.add(() -> {
+                Random userRandom = new Random(seed);
+                for (int m = 0; m < config.seedMessagesPerUser(); m++) {
+                    if (!groups.isEmpty() && userRandom.nextInt(4) == 0) {
+                        client.sendGroupMessage(user.token(), groups.get(userRandom.nextInt(groups.size())).id(), "Seed group message " + m);
+                    } else if (!friends.isEmpty()) {
+                        client.sendMessage(user.token(), friends.get(userRandom.nextInt(friends.size())), "Seed message " + m);
+                    }
+                }
+            });
+        }
+        runConcurrently(history);
+
+        return world;
+    }
+
+    // Barabasi-Albert style: each new user links to existing users with probability proportional to their degree
+    private List<int[]> friendEdges(int userCount) {
+        int linksPerUser = Math.max(1, config.averageFriends() / 2);
+        List<Integer> endpoints = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<int[]> edges = new ArrayList<>();
+
+        for (int user = 1; user < userCount; user++) {
+            int links = Math.min(linksPerUser, user);
+            for (int attempt = 0; attempt < links * 4 && links > 0; attempt++) {
+                int target = endpoints.isEmpty() ? random.nextInt(user) : endpoints.get(random.nextInt(endpoints.size()));
+                if (target == user || !seen.add((long) Math.min(user, target) * userCount + Math.max(user, target))) {
+                    continue;
+                }
+                edges.add(new int[]{user, target});
+                endpoints.add(user);
+                endpoints.add(target);
+                links--;
+            }
+        }
+        return edges;
+    }
+
+    private List<String> sampleMembers(List<SyntheticWorld.SyntheticUser> users, String creatorEmail, int count) {
+        Set<String> members = new HashSet<>();
+        int limit = Math.min(count, users.size() - 1);
+        while (members.size() < limit) {
+            String email = users.get(random.nextInt(users.size())).email();
+            if (!email.equals(creatorEmail)) {
+                members.add(email);
+            }
+        }
+        return new ArrayList<>(members);
+    }
+
+    private void runConcurrently(List<Runnable> tasks) {
+        Semaphore permits = new Semaphore(config.concurrency());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Runnable task : tasks) {
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+}
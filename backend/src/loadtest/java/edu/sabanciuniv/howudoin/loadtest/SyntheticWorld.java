@@ -0,0 +1,62 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Everything the generator created: users with their tokens, the friend graph and groups
+public class SyntheticWorld {
+
+    public record SyntheticUser(String email, Session session) {
+
+        // Renewed on demand, so always call this rather than holding on to a token
+        public String token() {
+            return session.accessToken();
+        }
+    }
+
+    public record SyntheticGroup(String id, List<String> members) {
+    }
+
+    private final List<SyntheticUser> users = new ArrayList<>();
+    private final Map<String, Set<String>> friends = new ConcurrentHashMap<>();
+    private final List<SyntheticGroup> groups = new ArrayList<>();
+    private final Map<String, List<SyntheticGroup>> groupsByMember = new ConcurrentHashMap<>();
+
+    public synchronized void addUser(SyntheticUser user) {
+        users.add(user);
+        friends.putIfAbsent(user.email(), ConcurrentHashMap.newKeySet());
+    }
+
+    public void addFriendship(String email1, String email2) {
+        friends.get(email1).add(email2);
+        friends.get(email2).add(email1);
+    }
+
+    public synchronized void addGroup(SyntheticGroup group) {
+        groups.add(group);
+        group.members().forEach(member -> groupsByMember.computeIfAbsent(member, key -> new ArrayList<>()).add(group));
+    }
+
+    public List<SyntheticUser> users() {
+        return users;
+    }
+
+    public List<String> friendsOf(String email) {
+        return List.copyOf(friends.getOrDefault(email, Set.of()));
+    }
+
+    public List<SyntheticGroup> groups() {
+        return groups;
+    }
+
+    public List<SyntheticGroup> groupsOf(String email) {
+        return groupsByMember.getOrDefault(email, List.of());
+    }
+
+    public long friendshipCount() {
+        return friends.values().stream().mapToLong(Set::size).sum() / 2;
+    }
+}
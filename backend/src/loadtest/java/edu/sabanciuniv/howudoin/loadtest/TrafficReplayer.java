@@ -0,0 +1,107 @@
+package edu.sabanciuniv.howudoin.loadtest;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs 'concurrency' simulated users, each issuing a weighted mix of requests back to back until the deadline
+public class TrafficReplayer {
+
+    private enum Operation {
+        SEND_MESSAGE(15),
+        READ_CONVERSATION(20),
+        MARK_READ(5),
+        UNREAD_COUNT(15),
+        RECENT_CONVERSATIONS(10),
+        FRIEND_LIST(8),
+        PENDING_REQUESTS(2),
+        GROUP_LIST(5),
+        GROUP_MESSAGES(12),
+        SEND_GROUP_MESSAGE(6),
+        GROUP_MEMBERS(2);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final LoadTestConfig config;
+    private final HowudoinClient client;
+    private final SyntheticWorld world;
+
+    public TrafficReplayer(LoadTestConfig config, HowudoinClient client, SyntheticWorld world) {
+        this.config = config;
+        this.client = client;
+        this.world = world;
+    }
+
+    public void run() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        List<SyntheticWorld.SyntheticUser> users = world.users();
+        int totalWeight = 0;
+        for (Operation operation : Operation.values()) {
+            totalWeight += operation.weight;
+        }
+        int weights = totalWeight;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int v = 0; v < config.concurrency(); v++) {
+                long seed = config.randomSeed() + v;
+                executor.submit(() -> {
+                    Random random = new Random(seed);
+                    while (System.nanoTime() < deadline) {
+                        SyntheticWorld.SyntheticUser user = users.get(random.nextInt(users.size()));
+                        execute(pick(random.nextInt(weights)), user, random);
+                    }
+                });
+            }
+        }
+    }
+
+    private Operation pick(int roll) {
+        for (Operation operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return Operation.UNREAD_COUNT;
+    }
+
+    private void execute(Operation operation, SyntheticWorld.SyntheticUser user, Random random) {
+        List<String> friends = world.friendsOf(user.email());
+        List<SyntheticWorld.SyntheticGroup> groups = world.groupsOf(user.email());
+        String friend = friends.isEmpty() ? null : friends.get(random.nextInt(friends.size()));
+        String groupId = groups.isEmpty() ? null : groups.get(random.nextInt(groups.size())).id();
+
+        switch (operation) {
+            case SEND_MESSAGE -> {
+                if (friend != null) client.sendMessage(user.token(), friend, "Load message " + random.nextInt());
+            }
+            case READ_CONVERSATION -> {
+                if (friend != null) client.getConversation(user.token(), friend);
+            }
+            case MARK_READ -> {
+                if (friend != null) client.markConversationRead(user.token(), friend);
+            }
+            case UNREAD_COUNT -> client.getUnreadCount(user.token());
+            case RECENT_CONVERSATIONS -> client.getRecentConversations(user.token());
+            case FRIEND_LIST -> client.getFriends(user.token());
+            case PENDING_REQUESTS -> client.getPendingRequests(user.token());
+            case GROUP_LIST -> client.getGroups(user.token());
+            case GROUP_MESSAGES -> {
+                if (groupId != null) client.getGroupMessages(user.token(), groupId);
+            }
+            case SEND_GROUP_MESSAGE -> {
+                if (groupId != null) client.sendGroupMessage(user.token(), groupId, "Load group message " + random.nextInt());
+            }
+            case GROUP_MEMBERS -> {
+                if (groupId != null) client.getGroupMembers(user.token(), groupId);
+            }
+        }
+    }
+}
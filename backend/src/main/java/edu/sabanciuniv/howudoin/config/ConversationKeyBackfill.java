@@ -0,0 +1,53 @@
+package edu.sabanciuniv.howudoin.config;
+
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+// Sets conversationId on direct messages stored before the field existed
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class ConversationKeyBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query query = new Query(Criteria.where("conversationId").exists(false).and("isGroupMessage").is(false));
+        query.fields().include("senderId").include("recipientId");
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        int pending = 0;
+
+        try (Stream<Message> messages = mongoTemplate.stream(query, Message.class)) {
+            for (Message message : (Iterable<Message>) messages::iterator) {
+                bulk.updateOne(
+                        Query.query(Criteria.where("_id").is(message.getId())),
+                        Update.update("conversationId", Message.conversationKey(message.getSenderId(), message.getRecipientId()))
+                );
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+                    pending = 0;
+                }
+            }
+        }
+
+        if (pending > 0) {
+            bulk.execute();
+        }
+    }
+}
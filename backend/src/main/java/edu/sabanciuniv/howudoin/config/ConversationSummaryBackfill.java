@@ -0,0 +1,143 @@
+package edu.sabanciuniv.howudoin.config;
+
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Builds inbox entries for conversations that predate the conversationSummaries collection.
+// Entries that already exist are left alone, so it is safe to run on every startup and after a partial run.
+@Component
+@Order(2) // needs the conversationId that ConversationKeyBackfill sets
+@RequiredArgsConstructor
+public class ConversationSummaryBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Batch batch = new Batch();
+        backfillDirect(batch);
+        backfillGroups(batch);
+        batch.flush();
+    }
+
+    private void backfillDirect(Batch batch) {
+        // Unread direct messages per (recipient, sender)
+        Map<String, Long> unread = new HashMap<>();
+        Aggregation unreadAggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isGroupMessage").is(false).and("isRead").is(false).and("isDeleted").is(false)),
+                Aggregation.group("recipientId", "senderId").count().as("count")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        mongoTemplate.aggregate(unreadAggregation, Message.class, Document.class).forEach(doc -> {
+            Document key = doc.get("_id", Document.class);
+            unread.put(key.getString("recipientId") + "|" + key.getString("senderId"), ((Number) doc.get("count")).longValue());
+        });
+
+        try (Stream<Document> conversations = mongoTemplate.aggregateStream(
+                lastMessageAggregation(Criteria.where("isGroupMessage").is(false).and("isDeleted").is(false), "conversationId"),
+                Message.class, Document.class)) {
+            conversations.forEach(last -> {
+                String sender = last.getString("senderId");
+                String recipient = last.getString("recipientId");
+                batch.add(sender, recipient, false, last, unread.getOrDefault(sender + "|" + recipient, 0L));
+                batch.add(recipient, sender, false, last, unread.getOrDefault(recipient + "|" + sender, 0L));
+            });
+        }
+    }
+
+    // Groups that fan out on read build their entries at read time and are skipped; group messages have no read state, so unread starts at zero
+    private void backfillGroups(Batch batch) {
+        Map<String, Document> lastByGroup = new HashMap<>();
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(
+                lastMessageAggregation(Criteria.where("isGroupMessage").is(true), "groupId"), Message.class, Document.class)) {
+            groups.forEach(last -> lastByGroup.put(last.getString("groupId"), last));
+        }
+
+        Query onWrite = Query.query(Criteria.where("fanoutOnRead").ne(true));
+        onWrite.fields().include("members");
+        try (Stream<Group> groups = mongoTemplate.stream(onWrite, Group.class)) {
+            groups.forEach(group -> {
+                Document last = lastByGroup.get(group.getId());
+                if (last != null) {
+                    group.getMembers().forEach(member -> batch.add(member, group.getId(), true, last, 0));
+                }
+            });
+        }
+    }
+
+    // The newest message per key, with the fields an inbox entry shows
+    private Aggregation lastMessageAggregation(Criteria criteria, String key) {
+        return Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "timestamp")),
+                Aggregation.group(key)
+                        .first("_id").as("messageId")
+                        .first("senderId").as("senderId")
+                        .first("recipientId").as("recipientId")
+                        .first("groupId").as("groupId")
+                        .first("content").as("content")
+                        .first("timestamp").as("timestamp")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
+
+    private final class Batch {
+        private BulkOperations bulk = newBulk();
+        private int pending;
+
+        // Inserts the entry if it is missing, or fills one that only a read watermark created; entries with a last message are kept
+        void add(String owner, String peer, boolean isGroup, Document last, long unreadCount) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("isGroup", isGroup);
+            fields.put("lastMessageId", last.getObjectId("messageId").toHexString());
+            fields.put("lastMessageSenderId", last.getString("senderId"));
+            fields.put("lastMessageContent", last.getString("content"));
+            fields.put("lastMessageTimestamp", LocalDateTime.ofInstant(last.getDate("timestamp").toInstant(), ZoneId.systemDefault()));
+            fields.put("unreadCount", unreadCount);
+
+            Update insert = new Update();
+            Update fill = new Update();
+            fields.forEach(insert::setOnInsert);
+            fields.forEach(fill::set);
+            bulk.upsert(Query.query(Criteria.where("ownerId").is(owner).and("peerId").is(peer)), insert);
+            bulk.updateOne(Query.query(Criteria.where("ownerId").is(owner).and("peerId").is(peer).and("lastMessageTimestamp").is(null)), fill);
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending > 0) {
+                bulk.execute();
+                bulk = newBulk();
+                pending = 0;
+            }
+        }
+
+        private BulkOperations newBulk() {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "friends")
+public class FriendGraphProperties {
+    private int missCacheMaxSize = 100000;
+    private long missCacheTtlMs = 5000; // bounds how long a friendship accepted on another instance can go unseen
+}
@@ -0,0 +1,13 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "fanout")
+public class GroupFanoutProperties {
+    private int writeThreshold = 256; // groups with more members fan out on read
+    private int unreadCountCap = 1000; // read-time unread counts stop here, clients show "999+"
+}
@@ -0,0 +1,14 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "groups")
+public class GroupMembershipProperties {
+    private int membershipCacheMaxSize = 50000;
+    private int userGroupsCacheMaxSize = 100000;
+    private long membershipCacheTtlMs = 60000; // 1m, bounds how long another instance's membership change can go unseen
+}
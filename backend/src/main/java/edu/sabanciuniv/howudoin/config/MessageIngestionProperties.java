@@ -0,0 +1,24 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ingestion")
+public class MessageIngestionProperties {
+    private int queueCapacity = 10000;
+    private int maxBatchSize = 500;
+    private long offerTimeoutMs = 50; // how long a sender waits for queue space before getting a 503
+    private long persistTimeoutMs = 10000;
+    private String writeConcern = "acknowledged"; // any WriteConcern constant name, e.g. w1, majority, journaled
+    private Acknowledge acknowledge = Acknowledge.PERSISTED;
+    private int sideEffectThreads = 4; // lanes for post-insert work; a conversation or group always uses the same lane
+    private int sideEffectQueueCapacity = 10000; // per lane; when full the writer waits
+
+    public enum Acknowledge {
+        PERSISTED, // 200 once the batch holding the message is written with the configured write concern
+        QUEUED     // 202 as soon as the message is queued; lost if the process dies before the next batch
+    }
+}
@@ -0,0 +1,28 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class MongoConfig {
+
+    // Size the connection pool for the request threading mode (spring.threads.virtual.enabled)
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(MongoPoolProperties pool, Environment environment) {
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        int maxSize = virtualThreads ? pool.getVirtualThreadsMaxSize() : pool.getMaxSize();
+        log.info("Mongo connection pool max size {} ({} threads)", maxSize, virtualThreads ? "virtual" : "platform");
+
+        return settings -> settings.applyToConnectionPoolSettings(builder -> builder
+                .maxSize(maxSize)
+                .minSize(pool.getMinSize())
+                .maxConnecting(pool.getMaxConnecting())
+                .maxWaitTime(pool.getMaxWaitMs(), TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,16 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mongo.pool")
+public class MongoPoolProperties {
+    private int maxSize = 100; // driver default, matches Tomcat's 200 platform threads well enough
+    private int virtualThreadsMaxSize = 500; // virtual threads let far more requests block on Mongo at once
+    private int minSize = 0;
+    private int maxConnecting = 2;
+    private long maxWaitMs = 120000; // 2m, driver default
+}
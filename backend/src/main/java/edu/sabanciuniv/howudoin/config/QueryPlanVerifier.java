@@ -0,0 +1,137 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Explains the filter behind each repository query at startup and reports any that would scan a whole collection
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueryPlanVerifier implements ApplicationRunner {
+
+    private static final String SAMPLE = "sample@howudoin.local";
+
+    private final MongoTemplate mongoTemplate;
+
+    // off, warn or fail
+    @Value("${mongo.query-plan-check:warn}")
+    private String mode;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if ("off".equalsIgnoreCase(mode)) {
+            return;
+        }
+
+        List<QueryCheck> checks = checks();
+        List<String> collectionScans = new ArrayList<>();
+        for (QueryCheck check : checks) {
+            Document explain = mongoTemplate.getDb().runCommand(new Document("explain", new Document("find", check.collection())
+                    .append("filter", check.filter())
+                    .append("sort", check.sort()))
+                    .append("verbosity", "queryPlanner"));
+
+            Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+            if (containsStage(winningPlan, "COLLSCAN")) {
+                collectionScans.add(check.name());
+            }
+        }
+
+        if (collectionScans.isEmpty()) {
+            log.info("Query plan check passed for {} repository queries", checks.size());
+            return;
+        }
+
+        String message = "Repository queries planned as COLLSCAN: " + collectionScans;
+        if ("fail".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    private boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.getString("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    // One entry per derived or annotated query in the repositories
+    private List<QueryCheck> checks() {
+        LocalDateTime now = LocalDateTime.now();
+        Document byTimestampAndIdDesc = new Document("timestamp", -1).append("_id", -1);
+
+        return List.of(
+                new QueryCheck("UserRepository.findByEmail", "users",
+                        new Document("email", SAMPLE), new Document()),
+                new QueryCheck("UserRepository.findProfilesByEmailIn", "users",
+                        new Document("email", new Document("$in", List.of(SAMPLE))), new Document()),
+                new QueryCheck("MessageRepository.findByConversationIdAndIsDeletedFalse", "messages",
+                        new Document("conversationId", SAMPLE).append("isDeleted", false)
+                                .append("timestamp", new Document("$lt", now)), byTimestampAndIdDesc),
+                new QueryCheck("MessageRepository.findConversationPageBefore", "messages",
+                        new Document("conversationId", SAMPLE).append("isDeleted", false)
+                                .append("$or", List.of(
+                                        new Document("timestamp", new Document("$lt", now)),
+                                        new Document("timestamp", now).append("_id", new Document("$lt", new ObjectId())))),
+                        byTimestampAndIdDesc),
+                new QueryCheck("MessageRepository.findByRecipientIdAndIsReadFalseAndIsDeletedFalse", "messages",
+                        new Document("recipientId", SAMPLE).append("isRead", false).append("isDeleted", false), new Document()),
+                new QueryCheck("MessageIngestionService.findStored", "messages",
+                        new Document("senderId", SAMPLE).append("clientMessageId", SAMPLE), new Document()),
+                new QueryCheck("MessageRepository.findByGroupId", "messages",
+                        new Document("groupId", SAMPLE).append("timestamp", new Document("$lt", now)), byTimestampAndIdDesc),
+                new QueryCheck("MessageRepository.findGroupPageBefore", "messages",
+                        new Document("groupId", SAMPLE).append("$or", List.of(
+                                new Document("timestamp", new Document("$lt", now)),
+                                new Document("timestamp", now).append("_id", new Document("$lt", new ObjectId())))),
+                        byTimestampAndIdDesc),
+                new QueryCheck("FriendRequestRepository.findBySenderIdAndReceiverId", "friendRequests",
+                        new Document("senderId", SAMPLE).append("receiverId", SAMPLE), new Document()),
+                new QueryCheck("FriendRequestRepository.findByReceiverIdAndStatus", "friendRequests",
+                        new Document("receiverId", SAMPLE).append("status", "PENDING"), new Document()),
+                new QueryCheck("FriendRequestRepository.findBySenderIdAndStatus", "friendRequests",
+                        new Document("senderId", SAMPLE).append("status", "PENDING"), new Document()),
+                new QueryCheck("FriendService.claimedBy", "friendRequests",
+                        new Document("receiverId", SAMPLE).append("batchId", SAMPLE), new Document()),
+                new QueryCheck("GroupRepository.findByMembersContaining", "groups",
+                        new Document("members", SAMPLE), new Document()),
+                new QueryCheck("ConversationSummaryRepository.findByOwnerId", "conversationSummaries",
+                        new Document("ownerId", SAMPLE), new Document("lastMessageTimestamp", -1)),
+                new QueryCheck("GroupFanoutService.markRead", "groupDeliveries",
+                        new Document("memberId", SAMPLE).append("groupId", SAMPLE).append("readAt", null), new Document()),
+                new QueryCheck("GroupFanoutService.getReceipts", "groupDeliveries",
+                        new Document("messageId", SAMPLE), new Document()),
+                new QueryCheck("ConversationSummaryService.countGroupMembersPast", "conversationSummaries",
+                        new Document("peerId", SAMPLE).append("lastReadAt", new Document("$gte", now))
+                                .append("ownerId", new Document("$in", List.of(SAMPLE))), new Document()),
+                new QueryCheck("MessageSearchService.search", "messages",
+                        new Document("$text", new Document("$search", "sample")).append("isDeleted", false), new Document()),
+                new QueryCheck("RefreshTokenService.rotate", "refreshTokens",
+                        new Document("tokenHash", SAMPLE).append("usedAt", null).append("expiresAt", new Document("$gt", now)), new Document()),
+                new QueryCheck("TokenRevocationList.sync", "revokedSessions",
+                        new Document("revokedAt", new Document("$gte", now)), new Document())
+        );
+    }
+
+    private record QueryCheck(String name, String collection, Map<String, Object> filter, Map<String, Object> sort) {
+    }
+}
@@ -0,0 +1,13 @@
+package edu.sabanciuniv.howudoin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "unread")
+public class UnreadCounterProperties {
+    private int cacheMaxSize = 100000;
+    private long cacheTtlMs = 30000; // bounds how long increments flushed by another instance can go unseen
+}
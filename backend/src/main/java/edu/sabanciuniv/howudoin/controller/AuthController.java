@@ -3,115 +3,129 @@ package edu.sabanciuniv.howudoin.controller;
 import edu.sabanciuniv.howudoin.dto.AuthResponse;
 import edu.sabanciuniv.howudoin.dto.ErrorResponse;
 import edu.sabanciuniv.howudoin.dto.LoginRequest;
+import edu.sabanciuniv.howudoin.dto.RefreshTokenRequest;
 import edu.sabanciuniv.howudoin.dto.RegisterRequest;
+import edu.sabanciuniv.howudoin.dto.SuccessResponse;
+import edu.sabanciuniv.howudoin.dto.TokenResponse;
 import edu.sabanciuniv.howudoin.model.User;
 import edu.sabanciuniv.howudoin.repository.UserRepository;
-import edu.sabanciuniv.howudoin.security.JwtTokenProvider;
+import edu.sabanciuniv.howudoin.security.PasswordHashingService;
+import edu.sabanciuniv.howudoin.security.RefreshTokenService;
 import jakarta.validation.Valid;
+import edu.sabanciuniv.howudoin.service.MetricsRecorder;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final JwtTokenProvider tokenProvider;
+    private final PasswordHashingService passwordHashingService;
+    private final RefreshTokenService refreshTokenService;
+    private final MetricsRecorder metricsRecorder;
+    // Spring's request executor, virtual threads when spring.threads.virtual.enabled; saves and token writes run here, not on the hashing pool
+    private final AsyncTaskExecutor applicationTaskExecutor;
 
+    // Hashing runs on the password hashing pool; the request thread is released while it waits
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequest request) {
         // Check if email already exists
         if (userRepository.existsByEmail(request.getEmail())) {
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                 .status(HttpStatus.CONFLICT)  // 409 Conflict
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(new ErrorResponse("Email already registered"));
+                .body(new ErrorResponse("Email already registered")));
         }
 
-        // Create new user
-        User user = new User();
-        user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-
-        // Save user
-        User savedUser = userRepository.save(user);
-        
-        // Generate token
-        String token = tokenProvider.generateToken(savedUser.getEmail());
-        
-        // Create response
-        AuthResponse response = AuthResponse.builder()
-                .token(token)
-                .email(savedUser.getEmail())
-                .firstName(savedUser.getFirstName())
-                .lastName(savedUser.getLastName())
-                .build();
+        return passwordHashingService.encode(request.getPassword()).thenApplyAsync(encodedPassword -> {
+            // Create new user
+            User user = new User();
+            user.setEmail(request.getEmail());
+            user.setPassword(encodedPassword);
+            user.setFirstName(request.getFirstName());
+            user.setLastName(request.getLastName());
 
-        return ResponseEntity
-            .status(HttpStatus.CREATED)
-            .contentType(MediaType.APPLICATION_JSON)
-            .body(response);
+            // Save user
+            User savedUser = userRepository.save(user);
+
+            return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(authResponse(savedUser));
+        }, applicationTaskExecutor);
     }
 
+    // One user lookup, then a single BCrypt check on the password hashing pool
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
-        try {
-            System.out.println("Login attempt for email: " + request.getEmail());
-            
-            // First check if user exists
-            User user = userRepository.findByEmail(request.getEmail()).orElseThrow(() -> new RuntimeException("User not found"));
-
-            // Attempt authentication
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                    request.getEmail(),
-                    request.getPassword()
-                )
-            );
-
-            System.out.println("Authentication successful for: " + request.getEmail());
-
-            // Generate token
-            String token = tokenProvider.generateToken(user.getEmail());
-
-            // Create response
-            AuthResponse response = AuthResponse.builder()
-                .token(token)
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request) {
+        log.atDebug().addKeyValue("email", request.getEmail()).log("Login attempt");
+
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+        if (user == null) {
+            return passwordHashingService.matchesUnknownUser(request.getPassword())
+                    .thenApplyAsync(ignored -> loginFailed(request, "unknown_user"), applicationTaskExecutor);
+        }
+
+        return passwordHashingService.matches(request.getPassword(), user.getPassword()).thenApplyAsync(matches -> {
+            if (!matches) {
+                return loginFailed(request, "bad_credentials");
+            }
+
+            log.atDebug().addKeyValue("email", request.getEmail()).log("Login succeeded");
+            passwordHashingService.rehashIfNeeded(user, request.getPassword());
+            return ResponseEntity.ok(authResponse(user));
+        }, applicationTaskExecutor);
+    }
+
+    // Swaps a refresh token for a new access token and a new refresh token; no password, no BCrypt
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.rotate(request.getRefreshToken());
+        TokenResponse response = TokenResponse.builder()
+                .token(tokens.accessToken())
+                .refreshToken(tokens.refreshToken())
+                .expiresIn(tokens.expiresInSeconds())
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<SuccessResponse> logout(@Valid @RequestBody RefreshTokenRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        return ResponseEntity.ok(new SuccessResponse("Logged out successfully"));
+    }
+
+    private AuthResponse authResponse(User user) {
+        RefreshTokenService.IssuedTokens tokens = refreshTokenService.issue(user.getEmail());
+        return AuthResponse.builder()
+                .token(tokens.accessToken())
+                .refreshToken(tokens.refreshToken())
+                .expiresIn(tokens.expiresInSeconds())
                 .email(user.getEmail())
                 .firstName(user.getFirstName())
                 .lastName(user.getLastName())
                 .build();
+    }
 
-            System.out.println("Login response: " + response);
-
-            return ResponseEntity.ok(response);
+    private ResponseEntity<?> loginFailed(LoginRequest request, String reason) {
+        metricsRecorder.authFailure(reason);
+        log.atDebug()
+            .addKeyValue("email", request.getEmail())
+            .addKeyValue("reason", reason)
+            .log("Login failed");
 
-        } catch (Exception e) {
-            System.err.println("Login error: " + e.getMessage());
-            e.printStackTrace();
-            
-            if (e instanceof RuntimeException && e.getMessage().equals("User not found")) {
-                return ResponseEntity
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(new ErrorResponse("Invalid email or password"));
-            }
-            
-            return ResponseEntity
-                .status(HttpStatus.UNAUTHORIZED)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(new ErrorResponse("Invalid email or password"));
-        }
+        return ResponseEntity
+            .status(HttpStatus.UNAUTHORIZED)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ErrorResponse("Invalid email or password"));
     }
 }
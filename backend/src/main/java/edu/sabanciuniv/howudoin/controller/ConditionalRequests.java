@@ -0,0 +1,24 @@
+package edu.sabanciuniv.howudoin.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// Conditional GET for list endpoints. The weak ETag is a stored resource version, checked before the list is loaded,
+// so a 304 costs one small lookup and no serialization. Weak because gzip changes the bytes but not the content.
+final class ConditionalRequests {
+
+    // Clients may keep the body but must revalidate before reusing it
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private ConditionalRequests() {
+    }
+
+    // True once a 304 has been written; the handler then returns null without building a body
+    static boolean notModified(ServletWebRequest request, String version) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        return request.checkNotModified("W/\"" + version + "\"");
+    }
+}
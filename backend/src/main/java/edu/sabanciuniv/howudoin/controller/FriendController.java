@@ -1,15 +1,18 @@
 package edu.sabanciuniv.howudoin.controller;
 
+import edu.sabanciuniv.howudoin.dto.FriendRequestBatchRequest;
+import edu.sabanciuniv.howudoin.dto.FriendRequestBatchResponse;
 import edu.sabanciuniv.howudoin.dto.FriendRequestDto;
+import edu.sabanciuniv.howudoin.dto.FriendRequestResponse;
 import edu.sabanciuniv.howudoin.dto.SuccessResponse;
 import edu.sabanciuniv.howudoin.dto.UserDto;
-import edu.sabanciuniv.howudoin.model.FriendRequest;
 import edu.sabanciuniv.howudoin.security.UserPrincipal;
 import edu.sabanciuniv.howudoin.service.FriendService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -41,15 +44,24 @@ public class FriendController {
         }
     }
 
+    @PostMapping("/pending/respond")
+    public ResponseEntity<FriendRequestBatchResponse> respondToFriendRequests(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody FriendRequestBatchRequest request) {
+        FriendRequestBatchResponse response = friendService.respondToFriendRequests(currentUser.getUsername(), request.getAccept(), request.getDecline());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
-    public ResponseEntity<List<UserDto>> getFriendList(@AuthenticationPrincipal UserPrincipal currentUser) {
+    public ResponseEntity<List<UserDto>> getFriendList(@AuthenticationPrincipal UserPrincipal currentUser, ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, friendService.getFriendListVersion(currentUser.getUsername()))) {
+            return null;
+        }
         List<UserDto> friends = friendService.getFriendListWithDetails(currentUser.getUsername());
         return ResponseEntity.ok(friends);
     }
 
     @GetMapping("/pending")
-    public ResponseEntity<List<FriendRequest>> getPendingRequests(@AuthenticationPrincipal UserPrincipal currentUser) {
-        List<FriendRequest> pendingRequests = friendService.getPendingRequests(currentUser.getUsername());
+    public ResponseEntity<List<FriendRequestResponse>> getPendingRequests(@AuthenticationPrincipal UserPrincipal currentUser) {
+        List<FriendRequestResponse> pendingRequests = friendService.getPendingRequests(currentUser.getUsername());
         return ResponseEntity.ok(pendingRequests);
     }
 }
@@ -1,18 +1,30 @@
 package edu.sabanciuniv.howudoin.controller;
 
 import edu.sabanciuniv.howudoin.dto.CreateGroupRequest;
+import edu.sabanciuniv.howudoin.dto.DeliveryReceipts;
+import edu.sabanciuniv.howudoin.dto.GroupDetailsResponse;
 import edu.sabanciuniv.howudoin.dto.GroupMessageRequest;
+import edu.sabanciuniv.howudoin.dto.GroupSummaryResponse;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
 import edu.sabanciuniv.howudoin.model.Group;
-import edu.sabanciuniv.howudoin.model.Message;
 import edu.sabanciuniv.howudoin.security.UserPrincipal;
 import edu.sabanciuniv.howudoin.service.GroupService;
+import edu.sabanciuniv.howudoin.service.MessageIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/groups")
@@ -20,35 +32,76 @@ import java.util.Set;
 public class GroupController {
 
     private final GroupService groupService;
+    private final MessageIngestionService messageIngestionService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/create")
-    public ResponseEntity<Group> createGroup(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody CreateGroupRequest request) {
+    public ResponseEntity<GroupDetailsResponse> createGroup(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody CreateGroupRequest request) {
         Group group = groupService.createGroup(
             currentUser.getUsername(),
             request.getName(),
             request.getMemberEmails()
         );
-        return ResponseEntity.ok(group);
+        return ResponseEntity.ok(GroupDetailsResponse.from(group));
     }
 
     @PostMapping("/{groupId}/add-member")
-    public ResponseEntity<Group> addMember(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestParam String memberEmail) {
+    public ResponseEntity<GroupDetailsResponse> addMember(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestParam String memberEmail) {
         Group group = groupService.addMember(groupId, memberEmail);
-        return ResponseEntity.ok(group);
+        return ResponseEntity.ok(GroupDetailsResponse.from(group));
+    }
+
+    @PostMapping("/{groupId}/remove-member")
+    public ResponseEntity<GroupDetailsResponse> removeMember(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestParam String memberEmail) {
+        Group group = groupService.removeMember(groupId, memberEmail, currentUser.getUsername());
+        return ResponseEntity.ok(GroupDetailsResponse.from(group));
     }
 
     @PostMapping("/{groupId}/send")
-    public ResponseEntity<Message> sendGroupMessage(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestBody GroupMessageRequest request) {
-        Message message = groupService.sendGroupMessage(currentUser.getUsername(), groupId, request.getContent());
-        return ResponseEntity.ok(message);
+    public ResponseEntity<MessageResponse> sendGroupMessage(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestBody GroupMessageRequest request) {
+        MessageResponse message = MessageResponse.from(groupService.sendGroupMessage(currentUser.getUsername(), groupId, request.getContent(), request.getClientMessageId()));
+        return ResponseEntity.status(messageIngestionService.acknowledgementStatus()).body(message);
     }
 
     @GetMapping("/{groupId}/messages")
-    public ResponseEntity<List<Message>> getGroupMessages(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
-        List<Message> messages = groupService.getGroupMessages(groupId, currentUser.getUsername());
+    public ResponseEntity<List<MessageResponse>> getGroupMessages(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @PathVariable String groupId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(defaultValue = "50") int limit,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, groupService.getGroupMessagesVersion(groupId, currentUser.getUsername()))) {
+            return null;
+        }
+        List<MessageResponse> messages = groupService.getGroupMessages(groupId, currentUser.getUsername(), before, beforeId, limit);
         return ResponseEntity.ok(messages);
     }
 
+    @GetMapping(value = "/{groupId}/messages/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportGroupMessages(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
+        Stream<MessageResponse> messages = groupService.streamGroupMessages(groupId, currentUser.getUsername());
+
+        // One JSON document per line, written as the cursor advances
+        StreamingResponseBody body = out -> {
+            try (messages) {
+                for (MessageResponse message : (Iterable<MessageResponse>) messages::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(message));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/{groupId}/messages/{messageId}/receipts")
+    public ResponseEntity<DeliveryReceipts> getReceipts(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @PathVariable String messageId) {
+        DeliveryReceipts receipts = groupService.getReceipts(groupId, messageId, currentUser.getUsername());
+        return ResponseEntity.ok(receipts);
+    }
+
     @GetMapping("/{groupId}/members")
     public ResponseEntity<Set<String>> getGroupMembers(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
         Set<String> members = groupService.getGroupMembers(groupId, currentUser.getUsername());
@@ -56,16 +109,25 @@ public class GroupController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Group>> getUserGroups(@AuthenticationPrincipal UserPrincipal currentUser) {
-        List<Group> groups = groupService.getUserGroups(currentUser.getUsername());
+    public ResponseEntity<List<GroupSummaryResponse>> getUserGroups(@AuthenticationPrincipal UserPrincipal currentUser, ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, groupService.getUserGroupsVersion(currentUser.getUsername()))) {
+            return null;
+        }
+        List<GroupSummaryResponse> groups = groupService.getUserGroups(currentUser.getUsername());
         return ResponseEntity.ok(groups);
     }
 
+    @GetMapping("/unread")
+    public ResponseEntity<Map<String, Long>> getUnreadCounts(@AuthenticationPrincipal UserPrincipal currentUser) {
+        Map<String, Long> counts = groupService.getUnreadCounts(currentUser.getUsername());
+        return ResponseEntity.ok(counts);
+    }
+
     @GetMapping("/{groupId}")
-    public ResponseEntity<Group> getGroupDetails(
+    public ResponseEntity<GroupDetailsResponse> getGroupDetails(
             @AuthenticationPrincipal UserPrincipal currentUser,
             @PathVariable String groupId) {
-        Group group = groupService.getGroupDetails(groupId, currentUser.getUsername());
+        GroupDetailsResponse group = groupService.getGroupDetails(groupId, currentUser.getUsername());
         return ResponseEntity.ok(group);
     }
 }
@@ -1,15 +1,22 @@
 package edu.sabanciuniv.howudoin.controller;
 
 import edu.sabanciuniv.howudoin.dto.MessageRequest;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.dto.MessageSearchResponse;
 import edu.sabanciuniv.howudoin.dto.SuccessResponse;
-import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
 import edu.sabanciuniv.howudoin.security.UserPrincipal;
+import edu.sabanciuniv.howudoin.service.MessageIngestionService;
+import edu.sabanciuniv.howudoin.service.MessageSearchService;
 import edu.sabanciuniv.howudoin.service.MessageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,32 +25,66 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final MessageIngestionService messageIngestionService;
+    private final MessageSearchService messageSearchService;
 
     @PostMapping("/send")
-    public ResponseEntity<Message> sendMessage(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody MessageRequest request) {
-        Message message = messageService.sendMessage(
+    public ResponseEntity<MessageResponse> sendMessage(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody MessageRequest request) {
+        MessageResponse message = MessageResponse.from(messageService.sendMessage(
             currentUser.getUsername(),
             request.getRecipientEmail(),
-            request.getContent()
-        );
-        return ResponseEntity.ok(message);
+            request.getContent(),
+            request.getClientMessageId()
+        ));
+        return ResponseEntity.status(messageIngestionService.acknowledgementStatus()).body(message);
     }
 
     @GetMapping
-    public ResponseEntity<List<Message>> getConversationHistory(@AuthenticationPrincipal UserPrincipal currentUser, @RequestParam String otherEmail) {
-        List<Message> messages = messageService.getConversationHistory(
+    public ResponseEntity<List<MessageResponse>> getConversationHistory(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam String otherEmail,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(defaultValue = "50") int limit,
+            ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, messageService.getConversationVersion(currentUser.getUsername(), otherEmail))) {
+            return null;
+        }
+        List<MessageResponse> messages = messageService.getConversationHistory(
             currentUser.getUsername(),
-            otherEmail
+            otherEmail,
+            before,
+            beforeId,
+            limit
         );
         return ResponseEntity.ok(messages);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<MessageSearchResponse> searchMessages(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        MessageSearchResponse results = messageSearchService.search(currentUser.getUsername(), q, cursor, limit);
+        return ResponseEntity.ok(results);
+    }
+
     @PostMapping("/{messageId}/read")
     public ResponseEntity<SuccessResponse> markAsRead(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String messageId) {
         messageService.markMessageAsRead(messageId, currentUser.getUsername());
         return ResponseEntity.ok(new SuccessResponse("Message marked as read"));
     }
 
+    @PostMapping("/read")
+    public ResponseEntity<SuccessResponse> markConversationAsRead(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam String otherEmail,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upTo) {
+        long marked = messageService.markConversationAsRead(currentUser.getUsername(), otherEmail, upTo);
+        return ResponseEntity.ok(new SuccessResponse(marked + " messages marked as read"));
+    }
+
     @DeleteMapping("/{messageId}")
     public ResponseEntity<SuccessResponse> deleteMessage(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String messageId) {
         messageService.deleteMessage(messageId, currentUser.getUsername());
@@ -57,14 +98,14 @@ public class MessageController {
     }
 
     @GetMapping("/unread")
-    public ResponseEntity<List<Message>> getUnreadMessages(@AuthenticationPrincipal UserPrincipal currentUser) {
-        List<Message> messages = messageService.getUnreadMessages(currentUser.getUsername());
+    public ResponseEntity<List<MessageResponse>> getUnreadMessages(@AuthenticationPrincipal UserPrincipal currentUser) {
+        List<MessageResponse> messages = messageService.getUnreadMessages(currentUser.getUsername());
         return ResponseEntity.ok(messages);
     }
 
     @GetMapping("/recent")
-    public ResponseEntity<List<Message>> getRecentConversations(@AuthenticationPrincipal UserPrincipal currentUser) {
-        List<Message> conversations = messageService.getRecentConversations(currentUser.getUsername());
+    public ResponseEntity<List<ConversationSummary>> getRecentConversations(@AuthenticationPrincipal UserPrincipal currentUser, @RequestParam(defaultValue = "50") int limit) {
+        List<ConversationSummary> conversations = messageService.getRecentConversations(currentUser.getUsername(), limit);
         return ResponseEntity.ok(conversations);
     }
 }
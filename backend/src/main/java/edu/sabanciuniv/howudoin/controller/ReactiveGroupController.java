@@ -0,0 +1,66 @@
+package edu.sabanciuniv.howudoin.controller;
+
+import edu.sabanciuniv.howudoin.dto.GroupDetailsResponse;
+import edu.sabanciuniv.howudoin.dto.GroupMessageRequest;
+import edu.sabanciuniv.howudoin.dto.GroupSummaryResponse;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.security.UserPrincipal;
+import edu.sabanciuniv.howudoin.service.MessageIngestionService;
+import edu.sabanciuniv.howudoin.service.ReactiveMessagingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+// Reactive variant of the /groups messaging routes; group management stays on GroupController
+@RestController
+@RequestMapping("/reactive/groups")
+@RequiredArgsConstructor
+public class ReactiveGroupController {
+
+    private final ReactiveMessagingService messagingService;
+    private final MessageIngestionService messageIngestionService;
+
+    @PostMapping("/{groupId}/send")
+    public Mono<ResponseEntity<MessageResponse>> sendGroupMessage(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId, @RequestBody GroupMessageRequest request) {
+        return messagingService.sendGroupMessage(currentUser.getUsername(), groupId, request.getContent(), request.getClientMessageId())
+                .map(message -> ResponseEntity.status(messageIngestionService.acknowledgementStatus()).body(MessageResponse.from(message)));
+    }
+
+    @GetMapping(value = "/{groupId}/messages", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<MessageResponse> getGroupMessages(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @PathVariable String groupId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return messagingService.getGroupMessages(groupId, currentUser.getUsername(), before, beforeId, limit);
+    }
+
+    @GetMapping(value = "/{groupId}/messages/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MessageResponse> exportGroupMessages(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
+        return messagingService.streamGroupMessages(groupId, currentUser.getUsername());
+    }
+
+    @GetMapping("/{groupId}/members")
+    public Mono<Set<String>> getGroupMembers(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
+        return messagingService.getGroupMembers(groupId, currentUser.getUsername());
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<GroupSummaryResponse> getUserGroups(@AuthenticationPrincipal UserPrincipal currentUser) {
+        return messagingService.getUserGroups(currentUser.getUsername());
+    }
+
+    @GetMapping("/{groupId}")
+    public Mono<GroupDetailsResponse> getGroupDetails(@AuthenticationPrincipal UserPrincipal currentUser, @PathVariable String groupId) {
+        return messagingService.getGroupDetails(groupId, currentUser.getUsername());
+    }
+}
@@ -0,0 +1,72 @@
+package edu.sabanciuniv.howudoin.controller;
+
+import edu.sabanciuniv.howudoin.dto.MessageRequest;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.security.UserPrincipal;
+import edu.sabanciuniv.howudoin.service.MessageIngestionService;
+import edu.sabanciuniv.howudoin.service.ReactiveMessagingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Reactive variant of /messages; send 'Accept: application/x-ndjson' to stream history instead of buffering a JSON array
+@RestController
+@RequestMapping("/reactive/messages")
+@RequiredArgsConstructor
+public class ReactiveMessageController {
+
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final ReactiveMessagingService messagingService;
+    private final MessageIngestionService messageIngestionService;
+
+    @PostMapping("/send")
+    public Mono<ResponseEntity<MessageResponse>> sendMessage(@AuthenticationPrincipal UserPrincipal currentUser, @RequestBody MessageRequest request) {
+        return messagingService.sendMessage(
+            currentUser.getUsername(),
+            request.getRecipientEmail(),
+            request.getContent(),
+            request.getClientMessageId()
+        ).map(message -> ResponseEntity.status(messageIngestionService.acknowledgementStatus()).body(MessageResponse.from(message)));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<MessageResponse> getConversationHistory(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam String otherEmail,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return messagingService.getConversationHistory(
+            currentUser.getUsername(),
+            otherEmail,
+            before,
+            beforeId,
+            limit
+        );
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MessageResponse>> streamMessages(@AuthenticationPrincipal UserPrincipal currentUser) {
+        Flux<ServerSentEvent<MessageResponse>> messages = messagingService.subscribe(currentUser.getUsername())
+                .map(message -> ServerSentEvent.builder(message)
+                        .id(message.getId())
+                        .event(message.isGroupMessage() ? "group-message" : "message")
+                        .build());
+
+        // Comment-only events keep idle connections open through proxies
+        Flux<ServerSentEvent<MessageResponse>> heartbeats = Flux.interval(HEARTBEAT_INTERVAL)
+                .map(tick -> ServerSentEvent.<MessageResponse>builder().comment("heartbeat").build());
+
+        return Flux.merge(messages, heartbeats);
+    }
+}
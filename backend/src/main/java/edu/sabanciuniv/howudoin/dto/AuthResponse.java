@@ -7,6 +7,8 @@ import lombok.Data;
 @Builder
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    private long expiresIn; // seconds until the access token expires
     private String email;
     private String firstName;
     private String lastName;
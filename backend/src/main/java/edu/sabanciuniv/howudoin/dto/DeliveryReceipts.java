@@ -0,0 +1,15 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeliveryReceipts {
+    private String messageId;
+    private long recipients;
+    private long delivered;
+    private long read;
+}
@@ -0,0 +1,13 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Pending requests to answer in one call, by sender email
+@Data
+public class FriendRequestBatchRequest {
+    private List<String> accept = new ArrayList<>();
+    private List<String> decline = new ArrayList<>();
+}
@@ -0,0 +1,16 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Senders whose requests were answered; anything missing from the request had no pending request
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendRequestBatchResponse {
+    private List<String> accepted;
+    private List<String> declined;
+}
@@ -0,0 +1,15 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A pending request as the receiver sees it; receiver and status are implied by the endpoint
+@Data
+@NoArgsConstructor
+public class FriendRequestResponse {
+    private String id;
+    private String senderId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,28 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import edu.sabanciuniv.howudoin.model.Group;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+public class GroupDetailsResponse {
+    private String id;
+    private String name;
+    private String creatorId;
+    private Set<String> members;
+    private LocalDateTime createdAt;
+
+    public static GroupDetailsResponse from(Group group) {
+        GroupDetailsResponse response = new GroupDetailsResponse();
+        response.setId(group.getId());
+        response.setName(group.getName());
+        response.setCreatorId(group.getCreatorId());
+        response.setMembers(group.getMembers());
+        response.setCreatedAt(group.getCreatedAt());
+        return response;
+    }
+}
@@ -5,4 +5,5 @@ import lombok.Data;
 @Data
 public class GroupMessageRequest {
     private String content;
+    private String clientMessageId; // optional; resending with the same value never stores the message twice
 }
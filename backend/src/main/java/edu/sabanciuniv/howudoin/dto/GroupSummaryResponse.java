@@ -0,0 +1,17 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Group list entry: the member count is computed by Mongo, the member set is never read
+@Data
+@NoArgsConstructor
+public class GroupSummaryResponse {
+    private String id;
+    private String name;
+    private String creatorId;
+    private int memberCount;
+    private LocalDateTime lastMessageTimestamp;
+}
@@ -6,4 +6,5 @@ import lombok.Data;
 public class MessageRequest {
     private String recipientEmail;
     private String content;
+    private String clientMessageId; // optional; resending with the same value never stores the message twice
 }
@@ -0,0 +1,36 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// What clients render for a message; also used as a Mongo projection, so only these fields are read
+@Data
+@NoArgsConstructor
+public class MessageResponse {
+    private String id;
+    private String senderId;
+    private String recipientId;
+    private String groupId;
+    private String clientMessageId;
+    private String content;
+    private LocalDateTime timestamp;
+    private boolean isGroupMessage;
+    private boolean isRead;
+
+    public static MessageResponse from(Message message) {
+        MessageResponse response = new MessageResponse();
+        response.setId(message.getId());
+        response.setSenderId(message.getSenderId());
+        response.setRecipientId(message.getRecipientId());
+        response.setGroupId(message.getGroupId());
+        response.setClientMessageId(message.getClientMessageId());
+        response.setContent(message.getContent());
+        response.setTimestamp(message.getTimestamp());
+        response.setGroupMessage(message.isGroupMessage());
+        response.setRead(message.isRead());
+        return response;
+    }
+}
@@ -0,0 +1,16 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Best matches first; pass nextCursor back as 'cursor' for the next page, null means there are no more
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchResponse {
+    private List<MessageResponse> messages;
+    private String nextCursor;
+}
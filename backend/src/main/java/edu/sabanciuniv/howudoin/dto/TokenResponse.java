@@ -0,0 +1,12 @@
+package edu.sabanciuniv.howudoin.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TokenResponse {
+    private String token;
+    private String refreshToken;
+    private long expiresIn; // seconds until the access token expires
+}
@@ -0,0 +1,33 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// One inbox entry per (owner, peer) where peer is the other user's email or a group id
+@Data
+@Document(collection = "conversationSummaries")
+@CompoundIndexes({
+    @CompoundIndex(name = "owner_peer", def = "{'ownerId': 1, 'peerId': 1}", unique = true),
+    @CompoundIndex(name = "owner_last_message", def = "{'ownerId': 1, 'lastMessageTimestamp': -1}"),
+    @CompoundIndex(name = "peer_last_read", def = "{'peerId': 1, 'lastReadAt': 1}")
+})
+public class ConversationSummary {
+    @Id
+    private String id;
+    private String ownerId;
+    private String peerId;
+    private boolean isGroup;
+    private String lastMessageId;
+    private String lastMessageSenderId;
+    private String lastMessageContent;
+    private LocalDateTime lastMessageTimestamp;
+    private long unreadCount;
+    // Owner has read everything in this conversation up to here
+    private LocalDateTime lastReadAt;
+    // Groups only: owner has received everything up to here
+    private LocalDateTime lastDeliveredAt;
+}
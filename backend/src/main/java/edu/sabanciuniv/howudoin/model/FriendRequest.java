@@ -2,17 +2,27 @@ package edu.sabanciuniv.howudoin.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "friendRequests")
+@CompoundIndexes({
+    @CompoundIndex(name = "sender_receiver", def = "{'senderId': 1, 'receiverId': 1}"),
+    @CompoundIndex(name = "receiver_status", def = "{'receiverId': 1, 'status': 1}"),
+    @CompoundIndex(name = "sender_status", def = "{'senderId': 1, 'status': 1}")
+})
 public class FriendRequest {
     @Id
     private String id;
     private String senderId;
     private String receiverId;
     private RequestStatus status;
+    @Indexed(sparse = true)
+    private String batchId; // the call that answered the request
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
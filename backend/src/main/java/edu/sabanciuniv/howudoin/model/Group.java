@@ -2,6 +2,7 @@ package edu.sabanciuniv.howudoin.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -14,7 +15,14 @@ public class Group {
     private String id;
     private String name;
     private String creatorId;
+    @Indexed
     private Set<String> members = new HashSet<>();
+    // Set for groups above fanout.write-threshold: the last message lives here instead of in every member's inbox
+    private boolean fanoutOnRead;
+    private String lastMessageId;
+    private String lastMessageSenderId;
+    private String lastMessageContent;
+    private LocalDateTime lastMessageTimestamp;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,27 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// One row per (group message, recipient) for groups small enough to fan out on write
+@Data
+@Document(collection = "groupDeliveries")
+@CompoundIndexes({
+    @CompoundIndex(name = "message_member", def = "{'messageId': 1, 'memberId': 1}", unique = true),
+    @CompoundIndex(name = "member_group_read", def = "{'memberId': 1, 'groupId': 1, 'readAt': 1}")
+})
+public class GroupDelivery {
+    @Id
+    private String id;
+    private String groupId;
+    private String messageId;
+    private String memberId;
+    private LocalDateTime messageTimestamp;
+    // Null until pushed to an open session or fetched
+    private LocalDateTime deliveredAt;
+    private LocalDateTime readAt;
+}
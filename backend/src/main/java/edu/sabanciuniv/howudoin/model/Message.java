@@ -2,22 +2,46 @@ package edu.sabanciuniv.howudoin.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "messages")
+@CompoundIndexes({
+    @CompoundIndex(name = "conversation_timestamp_id", def = "{'conversationId': 1, 'isDeleted': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "group_timestamp_id", def = "{'groupId': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "recipient_unread", def = "{'recipientId': 1, 'isRead': 1, 'isDeleted': 1}"),
+    @CompoundIndex(name = "sender_client_message_id", def = "{'senderId': 1, 'clientMessageId': 1}", unique = true,
+            partialFilter = "{'clientMessageId': {'$exists': true}}")
+})
 public class Message {
     @Id
     private String id;
     private String senderId;
     private String recipientId;
+    // Normalized key shared by both directions of a direct conversation
+    private String conversationId;
+    // Sender-chosen id that makes retried sends idempotent; optional
+    private String clientMessageId;
+    // Backs message search; a collection can only have one text index
+    @TextIndexed
     private String content;
     private LocalDateTime timestamp;
     private boolean isGroupMessage;
     private String groupId;
+    // Group members other than the sender when the message was sent; receipts for fan-out-on-read groups are out of this
+    private Integer recipientCount;
     private boolean isRead;
     private boolean isDeleted;
     private LocalDateTime readAt;
     private LocalDateTime deletedAt;
+
+    public static String conversationKey(String email1, String email2) {
+        return email1.compareTo(email2) <= 0
+                ? email1 + "|" + email2
+                : email2 + "|" + email1;
+    }
 }
@@ -0,0 +1,25 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// Only the SHA-256 of the token is stored. Rotated tokens are kept, marked used, until they expire,
+// so presenting one again can be recognised as a leak.
+@Data
+@Document(collection = "refreshTokens")
+public class RefreshToken {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private String tokenHash;
+    private String userEmail;
+    // Shared by every token rotated from the same login
+    @Indexed
+    private String sessionId;
+    private LocalDateTime usedAt;
+    @Indexed(name = "expires_at_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,14 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Opaque version of a list resource such as a conversation or a friend list; replaced on every write that changes it
+@Data
+@Document(collection = "resourceVersions")
+public class ResourceVersion {
+    @Id
+    private String id;
+    private String version;
+}
@@ -0,0 +1,19 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// A logged-out or compromised session; kept until the last access token issued for it has expired
+@Data
+@Document(collection = "revokedSessions")
+public class RevokedSession {
+    @Id
+    private String id;
+    @Indexed
+    private LocalDateTime revokedAt;
+    @Indexed(name = "expires_at_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expiresAt;
+}
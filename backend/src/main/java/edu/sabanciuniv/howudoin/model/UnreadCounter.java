@@ -0,0 +1,17 @@
+package edu.sabanciuniv.howudoin.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.HashMap;
+import java.util.Map;
+
+// Persisted snapshot of a user's unread counters, keyed by email
+@Data
+@Document(collection = "unreadCounters")
+public class UnreadCounter {
+    @Id
+    private String id;
+    private long directUnread;
+    private Map<String, Long> groupUnread = new HashMap<>();
+}
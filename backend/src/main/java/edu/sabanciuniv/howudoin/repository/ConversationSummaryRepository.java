@@ -0,0 +1,10 @@
+package edu.sabanciuniv.howudoin.repository;
+
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
+
+public interface ConversationSummaryRepository extends MongoRepository<ConversationSummary, String> {
+    List<ConversationSummary> findByOwnerIdOrderByLastMessageTimestampDesc(String ownerId, Pageable pageable);
+}
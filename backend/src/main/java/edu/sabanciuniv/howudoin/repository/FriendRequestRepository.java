@@ -6,7 +6,7 @@ import java.util.List;
 import java.util.Optional;
 
 public interface FriendRequestRepository extends MongoRepository<FriendRequest, String> {
-    List<FriendRequest> findByReceiverIdAndStatus(String receiverId, FriendRequest.RequestStatus status);
+    <T> List<T> findByReceiverIdAndStatus(String receiverId, FriendRequest.RequestStatus status, Class<T> type);
     List<FriendRequest> findBySenderIdAndStatus(String senderId, FriendRequest.RequestStatus status);
     Optional<FriendRequest> findBySenderIdAndReceiverId(String senderId, String receiverId);
 }
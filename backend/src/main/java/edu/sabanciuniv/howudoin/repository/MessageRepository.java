@@ -1,20 +1,35 @@
 package edu.sabanciuniv.howudoin.repository;
 
 import edu.sabanciuniv.howudoin.model.Message;
+import org.springframework.data.domain.Pageable;
+import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 
+// Read methods take the result type, so callers can ask for a projection DTO and only its fields are read
 public interface MessageRepository extends MongoRepository<Message, String> {
-    List<Message> findBySenderIdAndRecipientIdOrRecipientIdAndSenderIdOrderByTimestampDesc(
-            String senderId1, String recipientId1,
-            String senderId2, String recipientId2
+    <T> List<T> findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(String conversationId, Pageable pageable, Class<T> type);
+
+    <T> List<T> findByConversationIdAndIsDeletedFalseAndTimestampBeforeOrderByTimestampDescIdDesc(
+            String conversationId, LocalDateTime before, Pageable pageable, Class<T> type
     );
+
+    // Keyset page: older than the cursor message, with _id breaking ties between messages stored in the same millisecond
+    @Query(value = "{'conversationId': ?0, 'isDeleted': false, '$or': [{'timestamp': {'$lt': ?1}}, {'timestamp': ?1, '_id': {'$lt': ?2}}]}",
+            sort = "{'timestamp': -1, '_id': -1}")
+    <T> List<T> findConversationPageBefore(String conversationId, LocalDateTime before, ObjectId beforeId, Pageable pageable, Class<T> type);
     
-    List<Message> findByRecipientIdAndIsReadFalseAndIsDeletedFalse(String recipientId);
+    <T> List<T> findByRecipientIdAndIsReadFalseAndIsDeletedFalse(String recipientId, Class<T> type);
     
     long countByRecipientIdAndIsReadFalseAndIsDeletedFalse(String recipientId);
-    
-    List<Message> findDistinctBySenderIdOrRecipientIdOrderByTimestampDesc(String userId1, String userId2);
 
-    List<Message> findByGroupIdOrderByTimestampDesc(String groupId);
+    <T> List<T> findByGroupIdOrderByTimestampDescIdDesc(String groupId, Pageable pageable, Class<T> type);
+
+    <T> List<T> findByGroupIdAndTimestampBeforeOrderByTimestampDescIdDesc(String groupId, LocalDateTime before, Pageable pageable, Class<T> type);
+
+    @Query(value = "{'groupId': ?0, '$or': [{'timestamp': {'$lt': ?1}}, {'timestamp': ?1, '_id': {'$lt': ?2}}]}",
+            sort = "{'timestamp': -1, '_id': -1}")
+    <T> List<T> findGroupPageBefore(String groupId, LocalDateTime before, ObjectId beforeId, Pageable pageable, Class<T> type);
 }
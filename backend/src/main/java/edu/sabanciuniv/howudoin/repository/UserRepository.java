@@ -2,10 +2,19 @@ package edu.sabanciuniv.howudoin.repository;
 
 import edu.sabanciuniv.howudoin.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    long countByEmailIn(Collection<String> emails);
+
+    // Public profile fields only: no password hash or friend sets
+    @Query(value = "{ 'email': { $in: ?0 } }", fields = "{ 'email': 1, 'firstName': 1, 'lastName': 1 }")
+    List<User> findProfilesByEmailIn(Collection<String> emails);
 }
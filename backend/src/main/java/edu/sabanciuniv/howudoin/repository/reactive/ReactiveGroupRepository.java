@@ -0,0 +1,7 @@
+package edu.sabanciuniv.howudoin.repository.reactive;
+
+import edu.sabanciuniv.howudoin.model.Group;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveGroupRepository extends ReactiveMongoRepository<Group, String> {
+}
@@ -0,0 +1,30 @@
+package edu.sabanciuniv.howudoin.repository.reactive;
+
+import edu.sabanciuniv.howudoin.model.Message;
+import org.springframework.data.domain.Pageable;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+public interface ReactiveMessageRepository extends ReactiveMongoRepository<Message, String> {
+    <T> Flux<T> findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(String conversationId, Pageable pageable, Class<T> type);
+
+    <T> Flux<T> findByConversationIdAndIsDeletedFalseAndTimestampBeforeOrderByTimestampDescIdDesc(
+            String conversationId, LocalDateTime before, Pageable pageable, Class<T> type
+    );
+
+    @Query(value = "{'conversationId': ?0, 'isDeleted': false, '$or': [{'timestamp': {'$lt': ?1}}, {'timestamp': ?1, '_id': {'$lt': ?2}}]}",
+            sort = "{'timestamp': -1, '_id': -1}")
+    <T> Flux<T> findConversationPageBefore(String conversationId, LocalDateTime before, ObjectId beforeId, Pageable pageable, Class<T> type);
+
+    <T> Flux<T> findByGroupIdOrderByTimestampDescIdDesc(String groupId, Pageable pageable, Class<T> type);
+
+    <T> Flux<T> findByGroupIdAndTimestampBeforeOrderByTimestampDescIdDesc(String groupId, LocalDateTime before, Pageable pageable, Class<T> type);
+
+    @Query(value = "{'groupId': ?0, '$or': [{'timestamp': {'$lt': ?1}}, {'timestamp': ?1, '_id': {'$lt': ?2}}]}",
+            sort = "{'timestamp': -1, '_id': -1}")
+    <T> Flux<T> findGroupPageBefore(String groupId, LocalDateTime before, ObjectId beforeId, Pageable pageable, Class<T> type);
+}
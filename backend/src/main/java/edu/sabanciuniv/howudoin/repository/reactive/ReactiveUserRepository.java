@@ -0,0 +1,9 @@
+package edu.sabanciuniv.howudoin.repository.reactive;
+
+import edu.sabanciuniv.howudoin.model.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+    Mono<Boolean> existsByEmail(String email);
+}
@@ -0,0 +1,69 @@
+package edu.sabanciuniv.howudoin.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Maps verified tokens to their principal so authenticated requests skip parsing and the user lookup
+@Component
+public class JwtPrincipalCache {
+
+    private final JwtTokenProvider tokenProvider;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
+    private final Cache<String, Entry> cache;
+
+    public JwtPrincipalCache(JwtTokenProvider tokenProvider, UserDetailsService userDetailsService, TokenRevocationList revocationList,
+                             JwtProperties jwtProperties) {
+        this.tokenProvider = tokenProvider;
+        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(jwtProperties.getPrincipalCacheMaxSize())
+                .expireAfterWrite(Duration.ofMillis(jwtProperties.getPrincipalCacheTtlMs()))
+                .build();
+    }
+
+    // Returns the principal for a valid token, or null if the token is invalid, expired or from a revoked session
+    public UserDetails resolve(String token) {
+        long now = System.currentTimeMillis();
+
+        Entry entry = cache.getIfPresent(token);
+        if (entry != null) {
+            if (entry.expiresAt() > now && !revocationList.isRevoked(entry.sessionId())) {
+                return entry.principal();
+            }
+            cache.invalidate(token);
+            return null;
+        }
+
+        Claims claims = tokenProvider.parseClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        String sessionId = claims.get(JwtTokenProvider.SESSION_CLAIM, String.class);
+        if (revocationList.isRevoked(sessionId)) {
+            return null;
+        }
+
+        UserDetails principal = userDetailsService.loadUserByUsername(claims.getSubject());
+        cache.put(token, new Entry((UserPrincipal) principal, sessionId, claims.getExpiration().getTime()));
+        return principal;
+    }
+
+    public void evictByEmail(String email) {
+        cache.asMap().values().removeIf(entry -> entry.principal().getEmail().equals(email));
+    }
+
+    public void evictById(String id) {
+        cache.asMap().values().removeIf(entry -> id.equals(entry.principal().getId()));
+    }
+
+    private record Entry(UserPrincipal principal, String sessionId, long expiresAt) {
+    }
+}
@@ -9,5 +9,10 @@ import org.springframework.context.annotation.Configuration;
 @ConfigurationProperties(prefix = "jwt")
 public class JwtProperties {
     private String secret;
-    private long expirationMs = 86400000; // 24h
+    private long expirationMs = 900000; // 15m; clients renew through /refresh
+    private long refreshExpirationMs = 2592000000L; // 30d
+    private long refreshReuseGraceMs = 30000; // a just-rotated refresh token still returns its successor this long
+    private long revocationSyncIntervalMs = 5000;
+    private long principalCacheTtlMs = 300000; // 5m
+    private int principalCacheMaxSize = 10000;
 }
@@ -1,7 +1,6 @@
 package edu.sabanciuniv.howudoin.security;
 
 import io.jsonwebtoken.*;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.Key;
@@ -9,47 +8,49 @@ import java.util.Date;
 import java.util.Base64;
 
 @Component
-@RequiredArgsConstructor
 public class JwtTokenProvider {
+
+    public static final String SESSION_CLAIM = "sid";
     
     private final JwtProperties jwtProperties;
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    public JwtTokenProvider(JwtProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
 
-    private Key getSigningKey() {
+        // Key and parser are immutable and thread-safe, so build them once
         byte[] keyBytes = Base64.getDecoder().decode(jwtProperties.getSecret());
-        return new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        this.signingKey = new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateToken(String email) {
+        return generateToken(email, null);
+    }
+
+    // The session id ties the token to a refresh-token session, so logging out revokes it before it expires
+    public String generateToken(String email, String sessionId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtProperties.getExpirationMs());
 
         return Jwts.builder()
                 .setSubject(email)
+                .claim(SESSION_CLAIM, sessionId)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
-    }
-
-    public boolean validateToken(String token) {
+    // Verifies the token and returns its claims, or null if it is invalid or expired
+    public Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
 }
@@ -0,0 +1,15 @@
+package edu.sabanciuniv.howudoin.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "password")
+public class PasswordHashingProperties {
+    private int bcryptStrength = 10; // stored hashes with another cost are re-encoded on the next login
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2); // cores BCrypt may occupy at once
+    private int queueCapacity = 200;
+    private long maxQueueWaitMs = 2000; // hashes queued longer than this are dropped with a 503 instead of run
+}
@@ -0,0 +1,134 @@
+package edu.sabanciuniv.howudoin.security;
+
+import edu.sabanciuniv.howudoin.model.User;
+import edu.sabanciuniv.howudoin.service.MetricsRecorder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// BCrypt off the request threads: a fixed pool caps the cores hashing can take during a login storm,
+// and a full queue sheds logins with a 503 instead of starving chat traffic
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingProperties properties;
+    private final MongoTemplate mongoTemplate;
+    private final JwtPrincipalCache principalCache;
+    private final MetricsRecorder metricsRecorder;
+    private final ThreadPoolExecutor executor;
+    // Mongo writes after a hash complete here so they do not hold a hashing thread
+    private final AsyncTaskExecutor applicationTaskExecutor;
+    // Checked against for unknown emails, at the configured cost
+    private final String dummyHash;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, PasswordHashingProperties properties, MongoTemplate mongoTemplate,
+                                  JwtPrincipalCache principalCache, MetricsRecorder metricsRecorder, AsyncTaskExecutor applicationTaskExecutor) {
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+        this.mongoTemplate = mongoTemplate;
+        this.principalCache = principalCache;
+        this.metricsRecorder = metricsRecorder;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+        this.executor = new ThreadPoolExecutor(
+                properties.getThreads(), properties.getThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        metricsRecorder.passwordHashingQueue(executor.getQueue());
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // Same cost and queue as a real check, so the response time of a login does not reveal whether the email is registered
+    public CompletableFuture<Boolean> matchesUnknownUser(String rawPassword) {
+        return submit(() -> {
+            passwordEncoder.matches(rawPassword, dummyHash);
+            return false;
+        });
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // Call after a successful match; best effort, a skipped rehash is retried on the next login
+    public void rehashIfNeeded(User user, String rawPassword) {
+        if (!needsRehash(user.getPassword())) {
+            return;
+        }
+
+        encode(rawPassword).thenAcceptAsync(hash -> {
+            // Only replaces the hash that was just verified, so a concurrent password change wins
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(user.getId()).and("password").is(user.getPassword())),
+                    Update.update("password", hash),
+                    User.class
+            );
+            principalCache.evictByEmail(user.getEmail());
+        }, applicationTaskExecutor).exceptionally(e -> {
+            log.atDebug().addKeyValue("email", user.getEmail()).setCause(e).log("Password rehash skipped");
+            return null;
+        });
+    }
+
+    // $2a$10$...: the two digits after the version are the cost
+    boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(6) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != properties.getBcryptStrength();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                // The client has most likely timed out by now, so spend the CPU on someone still waiting
+                if (System.nanoTime() - queuedAt > TimeUnit.MILLISECONDS.toNanos(properties.getMaxQueueWaitMs())) {
+                    metricsRecorder.passwordHashingRejected();
+                    throw overloaded();
+                }
+                return task.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            metricsRecorder.passwordHashingRejected();
+            return CompletableFuture.failedFuture(overloaded());
+        }
+    }
+
+    private ResponseStatusException overloaded() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many logins in progress, please retry");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
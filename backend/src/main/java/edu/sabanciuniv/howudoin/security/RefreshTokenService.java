@@ -0,0 +1,155 @@
+package edu.sabanciuniv.howudoin.security;
+
+import edu.sabanciuniv.howudoin.model.RefreshToken;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+// Sessions behind the short-lived access tokens. Each refresh token is single use and is replaced on every refresh;
+// refreshing is one indexed findAndModify and never runs BCrypt.
+// A token's successor is derived from it with an HMAC, so for a short grace window after a rotation the same token
+// yields the same successor: a client whose parallel requests all refreshed at once keeps its session.
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final MongoTemplate mongoTemplate;
+    private final JwtTokenProvider tokenProvider;
+    private final JwtProperties jwtProperties;
+    private final TokenRevocationList revocationList;
+
+    public record IssuedTokens(String accessToken, String refreshToken, long expiresInSeconds) {
+    }
+
+    // Starts a new session, after a password check or registration
+    public IssuedTokens issue(String email) {
+        return issue(email, new ObjectId().toHexString());
+    }
+
+    public IssuedTokens rotate(String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Marks the token used and returns it, only if it was still unused and unexpired
+        RefreshToken current = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("tokenHash").is(tokenHash).and("usedAt").is(null).and("expiresAt").gt(now)),
+                Update.update("usedAt", now),
+                RefreshToken.class
+        );
+
+        if (current == null) {
+            RefreshToken reused = mongoTemplate.findOne(Query.query(Criteria.where("tokenHash").is(tokenHash)), RefreshToken.class);
+            if (reused == null || reused.getUsedAt() == null) {
+                throw invalidToken();
+            }
+            // Rotated moments ago, most likely by a parallel request from the same client: hand out the same successor
+            if (reused.getUsedAt().isAfter(now.minus(Duration.ofMillis(jwtProperties.getRefreshReuseGraceMs())))
+                    && !revocationList.isRevoked(reused.getSessionId())) {
+                RefreshToken successor = storeSuccessor(reused, refreshToken);
+                if (successor.getUsedAt() == null) {
+                    return tokens(reused.getUserEmail(), reused.getSessionId(), successorOf(refreshToken));
+                }
+            }
+            // Otherwise a token that was already rotated has leaked or been replayed: end the whole session
+            revokeSession(reused.getSessionId());
+            throw invalidToken();
+        }
+        if (revocationList.isRevoked(current.getSessionId())) {
+            throw invalidToken();
+        }
+        storeSuccessor(current, refreshToken);
+        return tokens(current.getUserEmail(), current.getSessionId(), successorOf(refreshToken));
+    }
+
+    // Logout: the refresh tokens are deleted and the session's access tokens are rejected from now on
+    public void revoke(String refreshToken) {
+        RefreshToken token = mongoTemplate.findOne(Query.query(Criteria.where("tokenHash").is(hash(refreshToken))), RefreshToken.class);
+        if (token != null) {
+            revokeSession(token.getSessionId());
+        }
+    }
+
+    private IssuedTokens issue(String email, String sessionId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken stored = new RefreshToken();
+        stored.setTokenHash(hash(refreshToken));
+        stored.setUserEmail(email);
+        stored.setSessionId(sessionId);
+        stored.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(jwtProperties.getRefreshExpirationMs())));
+        mongoTemplate.insert(stored);
+
+        return tokens(email, sessionId, refreshToken);
+    }
+
+    // Upserted, so whichever of several parallel refreshes gets here first stores it and the rest read it back
+    private RefreshToken storeSuccessor(RefreshToken previous, String previousToken) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("tokenHash").is(hash(successorOf(previousToken)))),
+                new Update()
+                        .setOnInsert("userEmail", previous.getUserEmail())
+                        .setOnInsert("sessionId", previous.getSessionId())
+                        .setOnInsert("expiresAt", LocalDateTime.now().plus(Duration.ofMillis(jwtProperties.getRefreshExpirationMs()))),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                RefreshToken.class
+        );
+    }
+
+    private IssuedTokens tokens(String email, String sessionId, String refreshToken) {
+        return new IssuedTokens(tokenProvider.generateToken(email, sessionId), refreshToken, jwtProperties.getExpirationMs() / 1000);
+    }
+
+    private String successorOf(String refreshToken) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(("refresh-token:" + jwtProperties.getSecret()).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] successor = mac.doFinal(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(successor);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void revokeSession(String sessionId) {
+        mongoTemplate.remove(Query.query(Criteria.where("sessionId").is(sessionId)), RefreshToken.class);
+        revocationList.revoke(sessionId);
+    }
+
+    // The token is 256 random bits, so a plain SHA-256 is as good as a slow hash here
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResponseStatusException invalidToken() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+    }
+}
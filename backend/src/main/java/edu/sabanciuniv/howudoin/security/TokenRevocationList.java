@@ -0,0 +1,62 @@
+package edu.sabanciuniv.howudoin.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.sabanciuniv.howudoin.model.RevokedSession;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Sessions ended by logout or refresh-token reuse. Their access tokens still verify until they expire, so every
+// request checks this set in memory; revocations made on other instances arrive through a short poll of revokedSessions.
+@Component
+public class TokenRevocationList {
+
+    // Tolerates clock skew between instances writing revokedAt
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration accessTokenLifetime;
+    private final Cache<String, Boolean> revoked;
+    private volatile LocalDateTime syncedUpTo;
+
+    public TokenRevocationList(MongoTemplate mongoTemplate, JwtProperties jwtProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.accessTokenLifetime = Duration.ofMillis(jwtProperties.getExpirationMs());
+        // Past the access token lifetime every token of the session has expired on its own
+        this.revoked = Caffeine.newBuilder()
+                .expireAfterWrite(accessTokenLifetime)
+                .build();
+        this.syncedUpTo = LocalDateTime.now().minus(accessTokenLifetime);
+        sync();
+    }
+
+    public boolean isRevoked(String sessionId) {
+        return sessionId != null && revoked.getIfPresent(sessionId) != null;
+    }
+
+    public void revoke(String sessionId) {
+        revoked.put(sessionId, Boolean.TRUE);
+
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.upsert(
+                Query.query(Criteria.where("_id").is(sessionId)),
+                new Update().set("revokedAt", now).set("expiresAt", now.plus(accessTokenLifetime)),
+                RevokedSession.class
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-interval-ms:5000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.find(Query.query(Criteria.where("revokedAt").gte(syncedUpTo.minus(SYNC_OVERLAP))), RevokedSession.class)
+                .forEach(session -> revoked.put(session.getId(), Boolean.TRUE));
+        syncedUpTo = now;
+    }
+}
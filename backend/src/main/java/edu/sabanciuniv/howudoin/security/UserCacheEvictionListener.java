@@ -0,0 +1,29 @@
+package edu.sabanciuniv.howudoin.security;
+
+import edu.sabanciuniv.howudoin.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Drops cached principals when a user document is rewritten (e.g. password change) or deleted
+@Component
+@RequiredArgsConstructor
+public class UserCacheEvictionListener extends AbstractMongoEventListener<User> {
+
+    private final JwtPrincipalCache principalCache;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        principalCache.evictByEmail(event.getSource().getEmail());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Object id = event.getSource().get("_id");
+        if (id != null) {
+            principalCache.evictById(id.toString());
+        }
+    }
+}
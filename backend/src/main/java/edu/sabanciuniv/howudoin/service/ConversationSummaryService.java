@@ -0,0 +1,260 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.config.GroupFanoutProperties;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.repository.ConversationSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Maintains the per-user inbox so /messages/recent never scans the messages collection
+@Service
+@RequiredArgsConstructor
+public class ConversationSummaryService {
+
+    private static final int MAX_INBOX_SIZE = 100;
+
+    private final ConversationSummaryRepository summaryRepository;
+    private final MongoTemplate mongoTemplate;
+    private final GroupFanoutProperties fanoutProperties;
+
+    public List<ConversationSummary> getInbox(String ownerEmail, int limit) {
+        int size = Math.clamp(limit, 1, MAX_INBOX_SIZE);
+        List<ConversationSummary> stored = summaryRepository.findByOwnerIdOrderByLastMessageTimestampDesc(
+                ownerEmail, PageRequest.of(0, size)
+        );
+
+        List<ConversationSummary> readTime = getReadTimeGroupSummaries(ownerEmail);
+        if (readTime.isEmpty()) {
+            // Entries created by a read watermark before any message was stored have nothing to show
+            return stored.stream().filter(summary -> summary.getLastMessageTimestamp() != null).toList();
+        }
+
+        // Stored entries for large groups are stale, the read-time ones replace them
+        Map<String, ConversationSummary> merged = stored.stream()
+                .collect(Collectors.toMap(ConversationSummary::getPeerId, Function.identity(), (a, b) -> a));
+        readTime.forEach(summary -> merged.put(summary.getPeerId(), summary));
+        return merged.values().stream()
+                .filter(summary -> summary.getLastMessageTimestamp() != null)
+                .sorted(Comparator.comparing(ConversationSummary::getLastMessageTimestamp).reversed())
+                .limit(size)
+                .toList();
+    }
+
+    // Inbox entries for the owner's fan-out-on-read groups, built from the group's last message and the owner's read watermark
+    public List<ConversationSummary> getReadTimeGroupSummaries(String ownerEmail) {
+        Query groupQuery = Query.query(Criteria.where("members").is(ownerEmail).and("fanoutOnRead").is(true));
+        groupQuery.fields().exclude("members");
+        List<Group> groups = mongoTemplate.find(groupQuery, Group.class);
+        if (groups.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> groupIds = groups.stream().map(Group::getId).toList();
+        Map<String, ConversationSummary> watermarks = mongoTemplate.find(
+                Query.query(Criteria.where("ownerId").is(ownerEmail).and("peerId").in(groupIds)),
+                ConversationSummary.class
+        ).stream().collect(Collectors.toMap(ConversationSummary::getPeerId, Function.identity()));
+
+        List<ConversationSummary> summaries = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            ConversationSummary summary = watermarks.computeIfAbsent(group.getId(), groupId -> {
+                ConversationSummary created = new ConversationSummary();
+                created.setOwnerId(ownerEmail);
+                created.setPeerId(groupId);
+                return created;
+            });
+            summary.setGroup(true);
+            summary.setLastMessageId(group.getLastMessageId());
+            summary.setLastMessageSenderId(group.getLastMessageSenderId());
+            summary.setLastMessageContent(group.getLastMessageContent());
+            summary.setLastMessageTimestamp(group.getLastMessageTimestamp());
+            summary.setUnreadCount(countGroupUnread(group.getId(), ownerEmail, summary.getLastReadAt()));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    public void recordDirectMessage(Message message) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        bulk.upsert(byOwnerAndPeer(message.getSenderId(), message.getRecipientId()), lastMessageUpdate(message, false));
+        bulk.upsert(byOwnerAndPeer(message.getRecipientId(), message.getSenderId()), lastMessageUpdate(message, false).inc("unreadCount", 1));
+        bulk.execute();
+    }
+
+    public void recordGroupMessage(Message message, Collection<String> members) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        for (String member : members) {
+            Update update = lastMessageUpdate(message, true);
+            if (!member.equals(message.getSenderId())) {
+                update.inc("unreadCount", 1);
+            }
+            bulk.upsert(byOwnerAndPeer(member, message.getGroupId()), update);
+        }
+        bulk.execute();
+    }
+
+    public void recordDirectMessageRead(Message message) {
+        decrementUnread(message.getRecipientId(), message.getSenderId());
+    }
+
+    // Null when the owner has no inbox entry for the peer or has never read it
+    public LocalDateTime getReadWatermark(String ownerEmail, String peerId) {
+        Query query = byOwnerAndPeer(ownerEmail, peerId);
+        query.fields().include("lastReadAt");
+        ConversationSummary summary = mongoTemplate.findOne(query, ConversationSummary.class);
+        return summary == null ? null : summary.getLastReadAt();
+    }
+
+    // Moves the owner's read watermark forward once the messages up to readUpTo are marked; never creates an inbox entry
+    public void advanceReadWatermark(String ownerEmail, String peerId, LocalDateTime readUpTo) {
+        mongoTemplate.updateFirst(byOwnerAndPeer(ownerEmail, peerId), new Update().max("lastReadAt", readUpTo), ConversationSummary.class);
+    }
+
+    public void recordDirectMessagesRead(String ownerEmail, String peerEmail, LocalDateTime readUpTo, long count) {
+        ConversationSummary summary = mongoTemplate.findOne(byOwnerAndPeer(ownerEmail, peerEmail), ConversationSummary.class);
+        if (summary == null) {
+            return;
+        }
+
+        // Everything up to the last message is read, so the count is exactly zero
+        Update update = summary.getLastMessageTimestamp() == null || !readUpTo.isBefore(summary.getLastMessageTimestamp())
+                ? Update.update("unreadCount", 0)
+                : new Update().inc("unreadCount", -Math.min(count, summary.getUnreadCount()));
+        mongoTemplate.updateFirst(byOwnerAndPeer(ownerEmail, peerEmail), update, ConversationSummary.class);
+    }
+
+    // Moves both group watermarks forward; everything up to 'at' has been fetched and read
+    public void advanceGroupWatermarks(String ownerEmail, String groupId, LocalDateTime at) {
+        mongoTemplate.upsert(
+                byOwnerAndPeer(ownerEmail, groupId),
+                new Update().set("isGroup", true).max("lastReadAt", at).max("lastDeliveredAt", at),
+                ConversationSummary.class
+        );
+    }
+
+    public void recordGroupDelivered(String groupId, Collection<String> members, LocalDateTime at) {
+        if (members.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        members.forEach(member -> bulk.upsert(
+                byOwnerAndPeer(member, groupId),
+                new Update().set("isGroup", true).max("lastDeliveredAt", at)
+        ));
+        bulk.execute();
+    }
+
+    // Only the given owners are counted, so members who have since left the group do not show up in receipts
+    public long countGroupMembersPast(String groupId, Collection<String> owners, String watermarkField, LocalDateTime timestamp) {
+        return mongoTemplate.count(
+                Query.query(Criteria.where("peerId").is(groupId).and(watermarkField).gte(timestamp).and("ownerId").in(owners)),
+                ConversationSummary.class
+        );
+    }
+
+    // Rebuilds the stored inbox entries of a group that goes back to fanning out on write: the messages sent while it
+    // fanned out on read never touched them. Returns each member's unread count, taken from their read watermark.
+    public Map<String, Long> seedGroupSummaries(Group group) {
+        Query watermarkQuery = Query.query(Criteria.where("peerId").is(group.getId()).and("ownerId").in(group.getMembers()));
+        watermarkQuery.fields().include("ownerId").include("lastReadAt");
+        Map<String, LocalDateTime> lastReadAt = new HashMap<>();
+        mongoTemplate.find(watermarkQuery, ConversationSummary.class)
+                .forEach(summary -> lastReadAt.put(summary.getOwnerId(), summary.getLastReadAt()));
+
+        Map<String, Long> unread = new HashMap<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        for (String member : group.getMembers()) {
+            long count = countGroupUnread(group.getId(), member, lastReadAt.get(member));
+            unread.put(member, count);
+
+            Update update = new Update().set("isGroup", true).set("unreadCount", count);
+            if (group.getLastMessageId() != null) {
+                update.set("lastMessageId", group.getLastMessageId())
+                        .set("lastMessageSenderId", group.getLastMessageSenderId())
+                        .set("lastMessageContent", group.getLastMessageContent())
+                        .set("lastMessageTimestamp", group.getLastMessageTimestamp());
+            }
+            bulk.upsert(byOwnerAndPeer(member, group.getId()), update);
+        }
+        if (!group.getMembers().isEmpty()) {
+            bulk.execute();
+        }
+        return unread;
+    }
+
+    public void clearUnread(String ownerEmail, String peerId) {
+        mongoTemplate.updateFirst(
+                byOwnerAndPeer(ownerEmail, peerId).addCriteria(Criteria.where("unreadCount").gt(0)),
+                Update.update("unreadCount", 0),
+                ConversationSummary.class
+        );
+    }
+
+    public void recordDirectMessageDeleted(Message message, boolean wasUnread) {
+        if (wasUnread) {
+            decrementUnread(message.getRecipientId(), message.getSenderId());
+        }
+
+        // Only summaries pointing at the deleted message need a new last message
+        Query latestQuery = Query.query(Criteria.where("conversationId").is(message.getConversationId()).and("isDeleted").is(false))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp", "_id"))
+                .limit(1);
+        Message latest = mongoTemplate.findOne(latestQuery, Message.class);
+
+        Query affected = Query.query(Criteria.where("ownerId").in(message.getSenderId(), message.getRecipientId())
+                .and("isGroup").is(false)
+                .and("lastMessageId").is(message.getId()));
+        Update update = latest != null
+                ? lastMessageUpdate(latest, false)
+                : new Update().unset("lastMessageId").unset("lastMessageSenderId").unset("lastMessageContent");
+        mongoTemplate.updateMulti(affected, update, ConversationSummary.class);
+    }
+
+    private long countGroupUnread(String groupId, String ownerEmail, LocalDateTime lastReadAt) {
+        Criteria criteria = Criteria.where("groupId").is(groupId).and("senderId").ne(ownerEmail).and("isDeleted").ne(true);
+        if (lastReadAt != null) {
+            criteria.and("timestamp").gt(lastReadAt);
+        }
+        return mongoTemplate.count(Query.query(criteria).limit(fanoutProperties.getUnreadCountCap()), Message.class);
+    }
+
+    private void decrementUnread(String ownerEmail, String peerId) {
+        mongoTemplate.updateFirst(
+                byOwnerAndPeer(ownerEmail, peerId).addCriteria(Criteria.where("unreadCount").gt(0)),
+                new Update().inc("unreadCount", -1),
+                ConversationSummary.class
+        );
+    }
+
+    private Query byOwnerAndPeer(String ownerId, String peerId) {
+        return Query.query(Criteria.where("ownerId").is(ownerId).and("peerId").is(peerId));
+    }
+
+    private Update lastMessageUpdate(Message message, boolean isGroup) {
+        return new Update()
+                .set("isGroup", isGroup)
+                .set("lastMessageId", message.getId())
+                .set("lastMessageSenderId", message.getSenderId())
+                .set("lastMessageContent", message.getContent())
+                .set("lastMessageTimestamp", message.getTimestamp());
+    }
+}
@@ -0,0 +1,142 @@
+package edu.sabanciuniv.howudoin.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Friendships as an adjacency list over dense int ids: each email gets the next id, and each user's friends
+// are a sorted int[] row. A check is one map lookup per email and a binary search, with no allocation.
+// Rows are copy-on-write, so readers never lock; writers serialize on the graph and keep the size totals current,
+// so the gauges read them without walking the graph.
+public class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<int[]> rows = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // Written under this, read without locking
+    private volatile long directedEdges; // each friendship is stored in both rows
+    private volatile long rowBytes;
+    private volatile long idBytes;
+
+    public boolean contains(String email, String friendEmail) {
+        Integer id = ids.get(email);
+        Integer friendId = ids.get(friendEmail);
+        if (id == null || friendId == null) {
+            return false;
+        }
+        int[] row = row(id);
+        return Arrays.binarySearch(row, friendId) >= 0;
+    }
+
+    // Replaces a user's row with their stored friend list; used when loading, where both directions are listed
+    public synchronized void setFriends(String email, Collection<String> friendEmails) {
+        int id = idFor(email);
+        int[] row = new int[friendEmails.size()];
+        int size = 0;
+        for (String friendEmail : friendEmails) {
+            row[size++] = idFor(friendEmail);
+        }
+        Arrays.sort(row);
+        row = dedupe(row);
+
+        int[] previous = row(id);
+        directedEdges += row.length - previous.length;
+        rowBytes += rowBytes(row) - rowBytes(previous);
+        rows.set(id, row);
+    }
+
+    public synchronized void addFriendship(String email, String friendEmail) {
+        int id = idFor(email);
+        int friendId = idFor(friendEmail);
+        boolean added = insert(id, friendId);
+        insert(friendId, id);
+        if (added) {
+            directedEdges += 2;
+        }
+    }
+
+    public int userCount() {
+        return ids.size();
+    }
+
+    public long edgeCount() {
+        return directedEdges / 2;
+    }
+
+    // Rough retained size: rows, the row table and the email-to-id map entries
+    public long estimatedBytes() {
+        return 16L + 4L * rows.length() + rowBytes + idBytes;
+    }
+
+    private int[] row(int id) {
+        AtomicReferenceArray<int[]> current = rows;
+        if (id >= current.length()) {
+            return NO_FRIENDS;
+        }
+        int[] row = current.get(id);
+        return row != null ? row : NO_FRIENDS;
+    }
+
+    private int idFor(String email) {
+        Integer id = ids.get(email);
+        if (id != null) {
+            return id;
+        }
+        int next = ids.size();
+        ids.put(email, next);
+        // map node + Integer + String with its byte[]
+        idBytes += 32 + 16 + 24 + align(16L + email.length());
+        ensureCapacity(next + 1);
+        return next;
+    }
+
+    private void ensureCapacity(int size) {
+        AtomicReferenceArray<int[]> current = rows;
+        if (size <= current.length()) {
+            return;
+        }
+        AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(Math.max(size, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        rows = grown;
+    }
+
+    private boolean insert(int id, int friendId) {
+        int[] row = row(id);
+        int position = Arrays.binarySearch(row, friendId);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        int[] updated = new int[row.length + 1];
+        System.arraycopy(row, 0, updated, 0, position);
+        updated[position] = friendId;
+        System.arraycopy(row, position, updated, position + 1, row.length - position);
+        rowBytes += rowBytes(updated) - rowBytes(row);
+        rows.set(id, updated);
+        return true;
+    }
+
+    private static int[] dedupe(int[] sorted) {
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    private static long rowBytes(int[] row) {
+        return row.length == 0 ? 0 : align(16L + 4L * row.length);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,78 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.sabanciuniv.howudoin.config.FriendGraphProperties;
+import edu.sabanciuniv.howudoin.model.User;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+// Friendship checks from the in-process FriendGraph, loaded from the users' friend lists at startup.
+// A miss is confirmed against Mongo, which picks up friendships accepted on other instances; confirmed misses
+// are cached for friends.miss-cache-ttl-ms, so such a friendship can take that long to show up here.
+@Slf4j
+@Service
+public class FriendGraphService {
+
+    private final MongoTemplate mongoTemplate;
+    private final FriendGraph graph = new FriendGraph();
+    private final Cache<String, Boolean> misses;
+
+    public FriendGraphService(MongoTemplate mongoTemplate, MetricsRecorder metricsRecorder, FriendGraphProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(properties.getMissCacheMaxSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getMissCacheTtlMs()))
+                .build();
+        metricsRecorder.friendGraph(graph);
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        Query query = new Query();
+        query.fields().include("email", "friends");
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            users.forEach(user -> graph.setFriends(user.getEmail(), user.getFriends()));
+        }
+        log.info("Loaded friend graph: {} users, {} friendships, ~{} KiB in {} ms",
+                graph.userCount(), graph.edgeCount(), graph.estimatedBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public boolean areFriends(String email, String friendEmail) {
+        if (graph.contains(email, friendEmail)) {
+            return true;
+        }
+        if (misses.getIfPresent(missKey(email, friendEmail)) != null) {
+            return false;
+        }
+
+        // Friendships are never removed, so only a miss can be stale
+        boolean stored = mongoTemplate.exists(
+                Query.query(Criteria.where("email").is(email).and("friends").is(friendEmail)), User.class);
+        if (stored) {
+            graph.addFriendship(email, friendEmail);
+        } else {
+            misses.put(missKey(email, friendEmail), Boolean.TRUE);
+        }
+        return stored;
+    }
+
+    // Call once the friendship is stored on both users
+    public void addFriendship(String email, String friendEmail) {
+        graph.addFriendship(email, friendEmail);
+        misses.invalidate(missKey(email, friendEmail));
+        misses.invalidate(missKey(friendEmail, email));
+    }
+
+    private static String missKey(String email, String friendEmail) {
+        return email + "|" + friendEmail;
+    }
+}
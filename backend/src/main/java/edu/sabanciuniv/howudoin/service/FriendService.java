@@ -5,13 +5,24 @@ import edu.sabanciuniv.howudoin.model.User;
 import edu.sabanciuniv.howudoin.repository.FriendRequestRepository;
 import edu.sabanciuniv.howudoin.repository.UserRepository;
 import edu.sabanciuniv.howudoin.dto.UserDto;
+import edu.sabanciuniv.howudoin.dto.FriendRequestResponse;
+import edu.sabanciuniv.howudoin.dto.FriendRequestBatchResponse;
+import com.mongodb.client.result.UpdateResult;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -19,8 +30,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FriendService {
 
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final UserRepository userRepository;
     private final FriendRequestRepository friendRequestRepository;
+    private final MetricsRecorder metricsRecorder;
+    private final ResourceVersionService resourceVersionService;
+    private final FriendGraphService friendGraphService;
+    private final MongoTemplate mongoTemplate;
 
     public void sendFriendRequest(String currentUserEmail, String friendEmail) {
         // Can't send request to yourself
@@ -29,14 +46,12 @@ public class FriendService {
         }
 
         // Check if friend exists
-        User friend = userRepository.findByEmail(friendEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        if (!userRepository.existsByEmail(friendEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
 
         // Check if they're already friends
-        User currentUser = userRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Current user not found"));
-
-        if (currentUser.getFriends().contains(friendEmail)) {
+        if (friendGraphService.areFriends(currentUserEmail, friendEmail)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Already friends with this user");
         }
 
@@ -54,32 +69,61 @@ public class FriendService {
         request.setUpdatedAt(LocalDateTime.now());
 
         friendRequestRepository.save(request);
+        metricsRecorder.friendRequestSent();
     }
 
     public void acceptFriendRequest(String currentUserEmail, String friendEmail) {
-        // Find and validate friend request
-        FriendRequest request = friendRequestRepository
-                .findBySenderIdAndReceiverId(friendEmail, currentUserEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Friend request not found"));
-
-        if (request.getStatus() != FriendRequest.RequestStatus.PENDING) {
+        // Only a pending request moves to accepted, so of two concurrent accepts exactly one goes on
+        String batchId = new ObjectId().toHexString();
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("senderId").is(friendEmail)
+                        .and("receiverId").is(currentUserEmail)
+                        .and("status").is(FriendRequest.RequestStatus.PENDING)),
+                answered(FriendRequest.RequestStatus.ACCEPTED, batchId),
+                FriendRequest.class
+        );
+
+        if (result.getModifiedCount() == 0) {
+            if (friendRequestRepository.findBySenderIdAndReceiverId(friendEmail, currentUserEmail).isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Friend request not found");
+            }
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Friend request already processed");
         }
 
-        // Update request status
-        request.setStatus(FriendRequest.RequestStatus.ACCEPTED);
-        request.setUpdatedAt(LocalDateTime.now());
-        friendRequestRepository.save(request);
+        addFriendships(currentUserEmail, List.of(friendEmail), batchId);
+        metricsRecorder.friendRequestAccepted();
+    }
+
+    public FriendRequestBatchResponse respondToFriendRequests(String currentUserEmail, List<String> accept, List<String> decline) {
+        if (accept == null || decline == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both accept and decline lists are required");
+        }
+        if (accept.size() + decline.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BATCH_SIZE + " requests can be answered at once");
+        }
 
-        // Update both users' friend lists
-        User currentUser = userRepository.findByEmail(currentUserEmail).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Current user not found"));
-        User friend = userRepository.findByEmail(friendEmail).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Friend user not found"));
+        // Senders without a pending request are skipped rather than failing the batch
+        String batchId = new ObjectId().toHexString();
+        boolean anyAccepted = claimPending(currentUserEmail, accept, FriendRequest.RequestStatus.ACCEPTED, batchId);
+        boolean anyDeclined = claimPending(currentUserEmail, decline, FriendRequest.RequestStatus.REJECTED, batchId);
+
+        List<String> accepted = new ArrayList<>();
+        List<String> declined = new ArrayList<>();
+        if (anyAccepted || anyDeclined) {
+            Map<String, FriendRequest.RequestStatus> claimed = claimedBy(currentUserEmail, batchId);
+            accept.stream().distinct().filter(sender -> claimed.get(sender) == FriendRequest.RequestStatus.ACCEPTED).forEach(accepted::add);
+            decline.stream().distinct().filter(sender -> claimed.get(sender) == FriendRequest.RequestStatus.REJECTED).forEach(declined::add);
+        }
 
-        currentUser.getFriends().add(friendEmail);
-        friend.getFriends().add(currentUserEmail);
+        if (!accepted.isEmpty()) {
+            addFriendships(currentUserEmail, accepted, batchId);
+            accepted.forEach(sender -> metricsRecorder.friendRequestAccepted());
+        }
+        return new FriendRequestBatchResponse(accepted, declined);
+    }
 
-        userRepository.save(currentUser);
-        userRepository.save(friend);
+    public String getFriendListVersion(String currentUserEmail) {
+        return resourceVersionService.get(ResourceVersionService.friendsKey(currentUserEmail));
     }
 
     public List<UserDto> getFriendListWithDetails(String currentUserEmail) {
@@ -87,20 +131,81 @@ public class FriendService {
         User currentUser = userRepository.findByEmail(currentUserEmail)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        // Get friend details
-        return currentUser.getFriends().stream()
-                .map(friendEmail -> userRepository.findByEmail(friendEmail)
-                        .map(friend -> UserDto.builder()
-                                .email(friend.getEmail())
-                                .firstName(friend.getFirstName())
-                                .lastName(friend.getLastName())
-                                .build())
-                        .orElse(null))
-                .filter(dto -> dto != null)
+        if (currentUser.getFriends().isEmpty()) {
+            return List.of();
+        }
+
+        // Get friend details in a single $in query
+        return userRepository.findProfilesByEmailIn(currentUser.getFriends()).stream()
+                .map(friend -> UserDto.builder()
+                        .email(friend.getEmail())
+                        .firstName(friend.getFirstName())
+                        .lastName(friend.getLastName())
+                        .build())
                 .collect(Collectors.toList());
     }
 
-    public List<FriendRequest> getPendingRequests(String currentUserEmail) {
-        return friendRequestRepository.findByReceiverIdAndStatus(currentUserEmail, FriendRequest.RequestStatus.PENDING);
+    public List<FriendRequestResponse> getPendingRequests(String currentUserEmail) {
+        return friendRequestRepository.findByReceiverIdAndStatus(currentUserEmail, FriendRequest.RequestStatus.PENDING, FriendRequestResponse.class);
+    }
+
+    // Answers the still-pending requests from the given senders in one update and stamps them with this call's batch id.
+    // The update is conditional on pending, so a request answered concurrently elsewhere is claimed by only one of the calls.
+    private boolean claimPending(String receiverEmail, List<String> senderEmails, FriendRequest.RequestStatus status, String batchId) {
+        if (senderEmails.isEmpty()) {
+            return false;
+        }
+        UpdateResult result = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("receiverId").is(receiverEmail)
+                        .and("senderId").in(senderEmails)
+                        .and("status").is(FriendRequest.RequestStatus.PENDING)),
+                answered(status, batchId),
+                FriendRequest.class
+        );
+        return result.getModifiedCount() > 0;
+    }
+
+    // The senders whose requests carry the batch id, with the answer this call gave them
+    private Map<String, FriendRequest.RequestStatus> claimedBy(String receiverEmail, String batchId) {
+        Query claimed = Query.query(Criteria.where("receiverId").is(receiverEmail).and("batchId").is(batchId));
+        claimed.fields().include("senderId", "status");
+        return mongoTemplate.find(claimed, FriendRequest.class).stream()
+                .collect(Collectors.toMap(FriendRequest::getSenderId, FriendRequest::getStatus));
+    }
+
+    // Adds the friendships in both directions with one bulk write. $addToSet only touches the friends array
+    // and is idempotent, so concurrent accepts cannot overwrite each other and a retry is safe.
+    private void addFriendships(String email, List<String> friendEmails, String batchId) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        bulk.updateOne(Query.query(Criteria.where("email").is(email)), new Update().addToSet("friends").each(friendEmails.toArray()));
+        for (String friendEmail : friendEmails) {
+            bulk.updateOne(Query.query(Criteria.where("email").is(friendEmail)), new Update().addToSet("friends", email));
+        }
+
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // Put the requests this call accepted back to pending so the accept can be retried
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("receiverId").is(email)
+                            .and("batchId").is(batchId)
+                            .and("status").is(FriendRequest.RequestStatus.ACCEPTED)),
+                    new Update().set("status", FriendRequest.RequestStatus.PENDING).set("updatedAt", LocalDateTime.now()).unset("batchId"),
+                    FriendRequest.class
+            );
+            throw e;
+        }
+
+        String[] versionKeys = new String[friendEmails.size() + 1];
+        versionKeys[0] = ResourceVersionService.friendsKey(email);
+        for (int i = 0; i < friendEmails.size(); i++) {
+            friendGraphService.addFriendship(email, friendEmails.get(i));
+            versionKeys[i + 1] = ResourceVersionService.friendsKey(friendEmails.get(i));
+        }
+        resourceVersionService.bump(versionKeys);
+    }
+
+    private Update answered(FriendRequest.RequestStatus status, String batchId) {
+        return new Update().set("status", status).set("batchId", batchId).set("updatedAt", LocalDateTime.now());
     }
 }
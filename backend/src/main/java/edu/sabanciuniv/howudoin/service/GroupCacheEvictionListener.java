@@ -0,0 +1,29 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.model.Group;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+// Keeps the membership cache in step with repository saves (e.g. createGroup) and deletes; findAndModify callers update it themselves
+@Component
+@RequiredArgsConstructor
+public class GroupCacheEvictionListener extends AbstractMongoEventListener<Group> {
+
+    private final GroupMembershipCache membershipCache;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Group> event) {
+        membershipCache.update(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Group> event) {
+        Object id = event.getSource().get("_id");
+        if (id != null) {
+            membershipCache.evict(id.toString());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.config.GroupFanoutProperties;
+import edu.sabanciuniv.howudoin.dto.DeliveryReceipts;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.GroupDelivery;
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+// Delivers group messages and tracks per-member delivery and read state.
+// Small groups fan out on write: one delivery row, inbox entry and unread counter per member.
+// Large groups fan out on read: one write on the group, and members' state is a pair of watermarks on their inbox entry.
+@Service
+@RequiredArgsConstructor
+public class GroupFanoutService {
+
+    private final GroupFanoutProperties properties;
+    private final MongoTemplate mongoTemplate;
+    private final MessagePushService messagePushService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final UnreadCounterService unreadCounterService;
+
+    public boolean fansOutOnRead(int memberCount) {
+        return memberCount > properties.getWriteThreshold();
+    }
+
+    // Keeps the stored mode in line with the member count after membership changes
+    public Group syncMode(Group group) {
+        boolean onRead = fansOutOnRead(group.getMembers().size());
+        if (group.isFanoutOnRead() != onRead) {
+            mongoTemplate.updateFirst(byId(group.getId()), Update.update("fanoutOnRead", onRead), Group.class);
+            group.setFanoutOnRead(onRead);
+
+            // Counters and inbox entries were not kept while the group fanned out on read; rebuild them from the watermarks
+            if (!onRead) {
+                conversationSummaryService.seedGroupSummaries(group)
+                        .forEach((member, unread) -> unreadCounterService.resetGroup(member, group.getId(), unread));
+            }
+        }
+        return group;
+    }
+
+    public void fanOut(Message message, GroupMembership group) {
+        Set<String> members = group.members();
+        Set<String> online = messagePushService.pushGroupMessage(message, members);
+        online.remove(message.getSenderId());
+        LocalDateTime now = LocalDateTime.now();
+
+        // The group keeps its last message in both modes; group lists show its timestamp
+        if (fansOutOnRead(members.size())) {
+            mongoTemplate.updateFirst(byId(group.groupId()), lastMessageUpdate(message).set("fanoutOnRead", true), Group.class);
+            conversationSummaryService.recordGroupDelivered(group.groupId(), online, message.getTimestamp());
+            return;
+        }
+        mongoTemplate.updateFirst(byId(group.groupId()), lastMessageUpdate(message), Group.class);
+
+        BulkOperations deliveries = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GroupDelivery.class);
+        for (String member : members) {
+            if (member.equals(message.getSenderId())) {
+                continue;
+            }
+            GroupDelivery delivery = new GroupDelivery();
+            delivery.setGroupId(group.groupId());
+            delivery.setMessageId(message.getId());
+            delivery.setMemberId(member);
+            delivery.setMessageTimestamp(message.getTimestamp());
+            delivery.setDeliveredAt(online.contains(member) ? now : null);
+            deliveries.insert(delivery);
+            unreadCounterService.incrementGroup(member, group.groupId());
+        }
+        if (members.size() > 1) {
+            deliveries.execute();
+        }
+        conversationSummaryService.recordGroupMessage(message, members);
+    }
+
+    // Opening the group counts as fetching and reading everything in it
+    public void markRead(GroupMembership group, String memberEmail) {
+        LocalDateTime now = LocalDateTime.now();
+        conversationSummaryService.clearUnread(memberEmail, group.groupId());
+        conversationSummaryService.advanceGroupWatermarks(memberEmail, group.groupId(), now);
+        unreadCounterService.clearGroup(memberEmail, group.groupId());
+
+        if (!fansOutOnRead(group.size())) {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("memberId").is(memberEmail).and("groupId").is(group.groupId()).and("deliveredAt").is(null)),
+                    Update.update("deliveredAt", now),
+                    GroupDelivery.class
+            );
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("memberId").is(memberEmail).and("groupId").is(group.groupId()).and("readAt").is(null)),
+                    Update.update("readAt", now),
+                    GroupDelivery.class
+            );
+        }
+    }
+
+    public DeliveryReceipts getReceipts(GroupMembership group, Message message) {
+        Query byMessage = Query.query(Criteria.where("messageId").is(message.getId()));
+        long recipients = mongoTemplate.count(byMessage, GroupDelivery.class);
+
+        // Sent while the group fanned out on write
+        if (recipients > 0) {
+            long delivered = mongoTemplate.count(
+                    Query.query(Criteria.where("messageId").is(message.getId()).and("deliveredAt").ne(null)), GroupDelivery.class);
+            long read = mongoTemplate.count(
+                    Query.query(Criteria.where("messageId").is(message.getId()).and("readAt").ne(null)), GroupDelivery.class);
+            return new DeliveryReceipts(message.getId(), recipients, delivered, read);
+        }
+
+        // Sent while the group fanned out on read: count current members whose watermarks have passed the message.
+        // The recipient count is the one recorded at send time; older messages without it fall back to the current size.
+        recipients = message.getRecipientCount() != null ? message.getRecipientCount() : group.size() - 1;
+        Set<String> members = new HashSet<>(group.members());
+        members.remove(message.getSenderId());
+        long delivered = conversationSummaryService.countGroupMembersPast(group.groupId(), members, "lastDeliveredAt", message.getTimestamp());
+        long read = conversationSummaryService.countGroupMembersPast(group.groupId(), members, "lastReadAt", message.getTimestamp());
+        // Members who joined after the message can see it too, but it was never sent to them
+        return new DeliveryReceipts(message.getId(), recipients, Math.min(delivered, recipients), Math.min(read, recipients));
+    }
+
+    private Query byId(String groupId) {
+        return Query.query(Criteria.where("_id").is(groupId));
+    }
+
+    private Update lastMessageUpdate(Message message) {
+        return new Update()
+                .set("lastMessageId", message.getId())
+                .set("lastMessageSenderId", message.getSenderId())
+                .set("lastMessageContent", message.getContent())
+                .set("lastMessageTimestamp", message.getTimestamp());
+    }
+}
@@ -0,0 +1,21 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.model.Group;
+
+import java.util.Set;
+
+// The parts of a group that authorization and fan-out need, with an immutable (array-backed) member set
+public record GroupMembership(String groupId, String creatorId, Set<String> members) {
+
+    public static GroupMembership of(Group group) {
+        return new GroupMembership(group.getId(), group.getCreatorId(), Set.copyOf(group.getMembers()));
+    }
+
+    public boolean contains(String email) {
+        return members.contains(email);
+    }
+
+    public int size() {
+        return members.size();
+    }
+}
@@ -0,0 +1,104 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.sabanciuniv.howudoin.config.GroupMembershipProperties;
+import edu.sabanciuniv.howudoin.model.Group;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Group id to members, plus the reverse user to group ids index, so membership checks skip loading the group document.
+// Membership changes on this instance update both in place; the TTL covers changes made by other instances.
+@Service
+public class GroupMembershipCache {
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, GroupMembership> groups;
+    private final Cache<String, Set<String>> userGroups;
+
+    public GroupMembershipCache(MongoTemplate mongoTemplate, GroupMembershipProperties properties) {
+        Duration ttl = Duration.ofMillis(properties.getMembershipCacheTtlMs());
+        this.mongoTemplate = mongoTemplate;
+        this.groups = Caffeine.newBuilder()
+                .maximumSize(properties.getMembershipCacheMaxSize())
+                .expireAfterWrite(ttl)
+                .build();
+        this.userGroups = Caffeine.newBuilder()
+                .maximumSize(properties.getUserGroupsCacheMaxSize())
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Null if the group does not exist
+    public GroupMembership get(String groupId) {
+        return groups.get(groupId, this::loadMembership);
+    }
+
+    // Null if the group is not cached; never touches Mongo
+    public GroupMembership getIfPresent(String groupId) {
+        return groups.getIfPresent(groupId);
+    }
+
+    public Set<String> getGroupIds(String userEmail) {
+        return Collections.unmodifiableSet(userGroups.get(userEmail, this::loadGroupIds));
+    }
+
+    // Call with the stored document after any change to its members
+    public void update(Group group) {
+        GroupMembership updated = GroupMembership.of(group);
+        GroupMembership previous = groups.asMap().put(group.getId(), updated);
+
+        for (String member : updated.members()) {
+            if (previous == null || !previous.contains(member)) {
+                userGroups.asMap().computeIfPresent(member, (email, ids) -> {
+                    ids.add(group.getId());
+                    return ids;
+                });
+            }
+        }
+        if (previous != null) {
+            for (String member : previous.members()) {
+                if (!updated.contains(member)) {
+                    removeFromUser(member, group.getId());
+                }
+            }
+        }
+    }
+
+    // For a member who left a group that may not have been cached, so update could not see them go
+    public void removeFromUser(String userEmail, String groupId) {
+        userGroups.asMap().computeIfPresent(userEmail, (email, ids) -> {
+            ids.remove(groupId);
+            return ids;
+        });
+    }
+
+    public void evict(String groupId) {
+        GroupMembership previous = groups.asMap().remove(groupId);
+        if (previous != null) {
+            previous.members().forEach(member -> removeFromUser(member, groupId));
+        }
+    }
+
+    private GroupMembership loadMembership(String groupId) {
+        Query query = Query.query(Criteria.where("_id").is(groupId));
+        query.fields().include("creatorId", "members");
+        Group group = mongoTemplate.findOne(query, Group.class);
+        return group == null ? null : GroupMembership.of(group);
+    }
+
+    private Set<String> loadGroupIds(String userEmail) {
+        Query query = Query.query(Criteria.where("members").is(userEmail));
+        query.fields().include("_id");
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        mongoTemplate.find(query, Group.class).forEach(group -> ids.add(group.getId()));
+        return ids;
+    }
+}
@@ -1,5 +1,10 @@
 package edu.sabanciuniv.howudoin.service;
 
+import edu.sabanciuniv.howudoin.dto.DeliveryReceipts;
+import edu.sabanciuniv.howudoin.dto.GroupDetailsResponse;
+import edu.sabanciuniv.howudoin.dto.GroupSummaryResponse;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
 import edu.sabanciuniv.howudoin.model.Group;
 import edu.sabanciuniv.howudoin.model.Message;
 import edu.sabanciuniv.howudoin.model.User;
@@ -7,40 +12,60 @@ import edu.sabanciuniv.howudoin.repository.GroupRepository;
 import edu.sabanciuniv.howudoin.repository.MessageRepository;
 import edu.sabanciuniv.howudoin.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class GroupService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
+    private final MessageIngestionService messageIngestionService;
+    private final MongoTemplate mongoTemplate;
+    private final ConversationSummaryService conversationSummaryService;
+    private final UnreadCounterService unreadCounterService;
+    private final GroupFanoutService groupFanoutService;
+    private final GroupMembershipCache membershipCache;
+    private final MetricsRecorder metricsRecorder;
+    private final ResourceVersionService resourceVersionService;
 
     public Group createGroup(String creatorEmail, String groupName, Set<String> memberEmails) {
-        // Validate creator exists
-        userRepository.findByEmail(creatorEmail).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Creator not found"));
-
-        // Validate all members exist
-        memberEmails.forEach(email -> 
-            userRepository.findByEmail(email)
-                    .orElseThrow(() -> new ResponseStatusException(
-                            HttpStatus.NOT_FOUND, 
-                            "Member not found: " + email))
-        );
+        Set<String> members = new HashSet<>(memberEmails);
+        members.add(creatorEmail);  // Add creator to members
+
+        // Validate creator and all members exist with one counted $in query
+        if (userRepository.countByEmailIn(members) != members.size()) {
+            throw missingMember(creatorEmail, members);
+        }
 
         // Create group
         Group group = new Group();
         group.setName(groupName);
         group.setCreatorId(creatorEmail);
-        group.setMembers(memberEmails);
-        group.getMembers().add(creatorEmail);  // Add creator to members
+        group.setMembers(members);
+        group.setFanoutOnRead(groupFanoutService.fansOutOnRead(members.size()));
         group.setCreatedAt(LocalDateTime.now());
         group.setUpdatedAt(LocalDateTime.now());
 
@@ -48,82 +73,209 @@ public class GroupService {
     }
 
     public Group addMember(String groupId, String memberEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
-
         // Validate member exists
-        userRepository.findByEmail(memberEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        if (!userRepository.existsByEmail(memberEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
 
-        // Add member
-        group.getMembers().add(memberEmail);
-        group.setUpdatedAt(LocalDateTime.now());
+        // Atomic $addToSet, so concurrent invites never overwrite each other
+        Group group = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(groupId)),
+                new Update().addToSet("members", memberEmail).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Group.class
+        );
 
-        return groupRepository.save(group);
+        if (group == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+        }
+        membershipCache.update(group);
+        resourceVersionService.bump(ResourceVersionService.groupKey(groupId));
+        return groupFanoutService.syncMode(group);
     }
 
-    public Message sendGroupMessage(String senderEmail, String groupId, String content) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+    public Group removeMember(String groupId, String memberEmail, String currentUserEmail) {
+        // Members may leave on their own; only the creator can remove someone else
+        Criteria criteria = Criteria.where("_id").is(groupId);
+        if (!memberEmail.equals(currentUserEmail)) {
+            criteria.and("creatorId").is(currentUserEmail);
+        }
 
-        // Verify sender is a member
-        if (!group.getMembers().contains(senderEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a member of this group");
+        Group group = mongoTemplate.findAndModify(
+                Query.query(criteria),
+                new Update().pull("members", memberEmail).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Group.class
+        );
+
+        if (group == null) {
+            if (!groupRepository.existsById(groupId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+            }
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the group creator can remove other members");
         }
+        membershipCache.update(group);
+        membershipCache.removeFromUser(memberEmail, groupId);
+        resourceVersionService.bump(ResourceVersionService.groupKey(groupId));
+        return groupFanoutService.syncMode(group);
+    }
+
+    public Message sendGroupMessage(String senderEmail, String groupId, String content) {
+        return sendGroupMessage(senderEmail, groupId, content, null);
+    }
+
+    public Message sendGroupMessage(String senderEmail, String groupId, String content, String clientMessageId) {
+        GroupMembership group = requireMember(groupId, senderEmail);
 
-        // Create and save message
+        // Create and queue message
         Message message = new Message();
         message.setSenderId(senderEmail);
         message.setGroupId(groupId);
+        message.setClientMessageId(clientMessageId);
         message.setContent(content);
         message.setTimestamp(LocalDateTime.now());
         message.setGroupMessage(true);
+        message.setRecipientCount(group.size() - 1);
 
-        return messageRepository.save(message);
+        // Delivery to members follows once the message's batch is in Mongo. The version moves first: a reader who sees
+        // the old version gets a 304 and skips markRead, so it must not see the new message's unread counter yet.
+        return messageIngestionService.ingest(message, saved -> {
+            resourceVersionService.bump(ResourceVersionService.groupKey(groupId));
+            groupFanoutService.fanOut(saved, group);
+            metricsRecorder.groupMessageSent();
+        });
     }
 
-    public List<Message> getGroupMessages(String groupId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+    // Checked before getGroupMessages; a 304 also skips its mark-as-read, which has nothing new to mark
+    public String getGroupMessagesVersion(String groupId, String userEmail) {
+        requireMember(groupId, userEmail);
+        return resourceVersionService.get(ResourceVersionService.groupKey(groupId));
+    }
 
-        // Verify user is a member
-        if (!group.getMembers().contains(userEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a member of this group");
+    public List<MessageResponse> getGroupMessages(String groupId, String userEmail, LocalDateTime before, int limit) {
+        return getGroupMessages(groupId, userEmail, before, null, limit);
+    }
+
+    public List<MessageResponse> getGroupMessages(String groupId, String userEmail, LocalDateTime before, String beforeId, int limit) {
+        GroupMembership group = requireMember(groupId, userEmail);
+
+        // Opening the group counts as reading it; paging back through older messages does not
+        if (before == null) {
+            groupFanoutService.markRead(group, userEmail);
+        }
+
+        // Newest first; pass the timestamp and id of the oldest message received as 'before' and 'beforeId' to get the next page
+        Pageable page = PageRequest.of(0, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        if (before == null) {
+            return messageRepository.findByGroupIdOrderByTimestampDescIdDesc(groupId, page, MessageResponse.class);
         }
+        if (beforeId == null) {
+            return messageRepository.findByGroupIdAndTimestampBeforeOrderByTimestampDescIdDesc(groupId, before, page, MessageResponse.class);
+        }
+        return messageRepository.findGroupPageBefore(groupId, before, HistoryCursor.beforeId(beforeId), page, MessageResponse.class);
+    }
+
+    // Oldest first, straight from the Mongo cursor; the caller must close the stream
+    public Stream<MessageResponse> streamGroupMessages(String groupId, String userEmail) {
+        requireMember(groupId, userEmail);
 
-        return messageRepository.findByGroupIdOrderByTimestampDesc(groupId);
+        Query query = Query.query(Criteria.where("groupId").is(groupId))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        return mongoTemplate.query(Message.class).as(MessageResponse.class).matching(query).stream();
     }
 
     public Set<String> getGroupMembers(String groupId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+        return requireMember(groupId, userEmail).members();
+    }
 
-        // Verify user is a member
-        if (!group.getMembers().contains(userEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a member of this group");
+    public Map<String, Long> getUnreadCounts(String userEmail) {
+        // Counters cover groups that fan out on write; large groups are counted from the member's read watermark
+        Map<String, Long> counts = unreadCounterService.getGroupUnread(userEmail);
+        for (ConversationSummary summary : conversationSummaryService.getReadTimeGroupSummaries(userEmail)) {
+            if (summary.getUnreadCount() > 0) {
+                counts.put(summary.getPeerId(), summary.getUnreadCount());
+            } else {
+                counts.remove(summary.getPeerId());
+            }
         }
+        return counts;
+    }
+
+    public DeliveryReceipts getReceipts(String groupId, String messageId, String userEmail) {
+        GroupMembership group = requireMember(groupId, userEmail);
 
-        return group.getMembers();
+        Message message = messageRepository.findById(messageId)
+                .filter(found -> groupId.equals(found.getGroupId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Message not found"));
+        return groupFanoutService.getReceipts(group, message);
     }
 
-    public List<Group> getUserGroups(String userEmail) {
+    // Covers which groups the user is in and each group's name, member count and last message
+    public String getUserGroupsVersion(String userEmail) {
+        return resourceVersionService.combine(membershipCache.getGroupIds(userEmail).stream()
+                .map(ResourceVersionService::groupKey)
+                .toList());
+    }
+
+    public List<GroupSummaryResponse> getUserGroups(String userEmail) {
         // Validate user exists
         userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        // Find all groups where user is a member
-        return groupRepository.findByMembersContaining(userEmail);
+        // Ids come from the reverse index, so this is an _id lookup rather than a members query
+        Set<String> groupIds = membershipCache.getGroupIds(userEmail);
+        if (groupIds.isEmpty()) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(groupIds));
+        // Mongo counts the members, so the member arrays are never sent to the application
+        query.fields()
+                .include("name", "creatorId", "lastMessageTimestamp")
+                .project(ArrayOperators.Size.lengthOfArray("members")).as("memberCount");
+        return mongoTemplate.query(Group.class).as(GroupSummaryResponse.class).matching(query).all();
+    }
+
+    public GroupDetailsResponse getGroupDetails(String groupId, String userEmail) {
+        requireMember(groupId, userEmail);
+
+        // Reads only the fields of the response
+        GroupDetailsResponse group = mongoTemplate.query(Group.class)
+                .as(GroupDetailsResponse.class)
+                .matching(Query.query(Criteria.where("_id").is(groupId)))
+                .oneValue();
+        if (group == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+        }
+        return group;
     }
 
-    public Group getGroupDetails(String groupId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found"));
+    private GroupMembership requireMember(String groupId, String userEmail) {
+        GroupMembership membership = membershipCache.get(groupId);
+        if (membership == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found");
+        }
 
         // Verify user is a member
-        if (!group.getMembers().contains(userEmail)) {
+        if (!membership.contains(userEmail)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a member of this group");
         }
+        return membership;
+    }
 
-        return group;
+    private ResponseStatusException missingMember(String creatorEmail, Set<String> members) {
+        // Slow path, only taken when validation already failed
+        Set<String> found = userRepository.findProfilesByEmailIn(members).stream()
+                .map(User::getEmail)
+                .collect(Collectors.toSet());
+
+        if (!found.contains(creatorEmail)) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Creator not found");
+        }
+        String missing = members.stream()
+                .filter(email -> !found.contains(email))
+                .findFirst()
+                .orElse("");
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found: " + missing);
     }
 }
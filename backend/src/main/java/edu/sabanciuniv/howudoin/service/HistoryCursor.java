@@ -0,0 +1,19 @@
+package edu.sabanciuniv.howudoin.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// History pages are keyed by (timestamp, _id) of the oldest message the client has, so messages sharing a timestamp are never skipped
+final class HistoryCursor {
+
+    private HistoryCursor() {
+    }
+
+    static ObjectId beforeId(String beforeId) {
+        if (!ObjectId.isValid(beforeId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid beforeId");
+        }
+        return new ObjectId(beforeId);
+    }
+}
@@ -0,0 +1,290 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import edu.sabanciuniv.howudoin.config.MessageIngestionProperties;
+import edu.sabanciuniv.howudoin.model.Message;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+// Group commit for new messages: senders enqueue, one writer thread inserts whatever has queued up as a single unordered insertMany.
+// Senders are acknowledged as soon as the insert returns; post-insert work (summaries, counters, pushes) runs afterwards on
+// side-effect lanes, one thread each, chosen by conversation or group so each conversation's messages are handled in order.
+@Slf4j
+@Service
+@DependsOn("unreadCounterService") // drained on shutdown before the counters take their final flush
+public class MessageIngestionService {
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final MessageIngestionProperties properties;
+    private final MetricsRecorder metricsRecorder;
+    private final MongoCollection<Document> collection;
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Map<String, PendingMessage> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor[] lanes;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public MessageIngestionService(MongoTemplate mongoTemplate, MessageIngestionProperties properties, MetricsRecorder metricsRecorder) {
+        WriteConcern writeConcern = WriteConcern.valueOf(properties.getWriteConcern());
+        if (writeConcern == null) {
+            throw new IllegalStateException("Unknown ingestion.write-concern: " + properties.getWriteConcern());
+        }
+
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.metricsRecorder = metricsRecorder;
+        this.collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class)).withWriteConcern(writeConcern);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.lanes = new ThreadPoolExecutor[Math.max(1, properties.getSideEffectThreads())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(properties.getSideEffectQueueCapacity()),
+                    Thread.ofPlatform().name("message-side-effects-" + i).daemon(true).factory(),
+                    MessageIngestionService::waitForSpace);
+        }
+        this.writer = Thread.ofPlatform().name("message-ingestion").daemon(true).start(this::drain);
+        metricsRecorder.ingestionQueue(queue);
+    }
+
+    public boolean acknowledgesOnPersist() {
+        return properties.getAcknowledge() == MessageIngestionProperties.Acknowledge.PERSISTED;
+    }
+
+    // 200 means stored, 202 means queued but not yet stored
+    public HttpStatus acknowledgementStatus() {
+        return acknowledgesOnPersist() ? HttpStatus.OK : HttpStatus.ACCEPTED;
+    }
+
+    // Assigns the id, queues the message and, depending on ingestion.acknowledge, waits for its batch to be written.
+    // onPersisted runs on a side-effect lane once the message is in Mongo.
+    // A message carrying a clientMessageId the sender has already used is not stored again: the first copy is returned instead,
+    // so a client can safely retry a send that timed out.
+    public Message ingest(Message message, Consumer<Message> onPersisted) {
+        if (message.getClientMessageId() != null) {
+            Message stored = findStored(message);
+            if (stored != null) {
+                return stored;
+            }
+        }
+
+        PendingMessage pending = enqueue(message, onPersisted);
+        if (!acknowledgesOnPersist()) {
+            return pending.message();
+        }
+
+        try {
+            return pending.persisted().get(properties.getPersistTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Message could not be stored, please retry");
+        } catch (TimeoutException e) {
+            // Still queued, so it may be written later; a retry with the same clientMessageId will not duplicate it
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Message was not confirmed in time, retry with the same clientMessageId");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Message was not confirmed in time, retry with the same clientMessageId");
+        }
+    }
+
+    private PendingMessage enqueue(Message message, Consumer<Message> onPersisted) {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server is shutting down");
+        }
+
+        message.setId(new ObjectId().toHexString());
+        PendingMessage pending = new PendingMessage(message, onPersisted, new CompletableFuture<>());
+
+        // A retry that arrives while the first attempt is still queued waits on the first attempt
+        String dedupeKey = dedupeKey(message);
+        if (dedupeKey != null) {
+            PendingMessage earlier = inFlight.putIfAbsent(dedupeKey, pending);
+            if (earlier != null) {
+                return earlier;
+            }
+            pending.persisted().whenComplete((stored, failure) -> inFlight.remove(dedupeKey, pending));
+        }
+
+        boolean queued;
+        try {
+            queued = queue.offer(pending, properties.getOfferTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+
+        // Backpressure: a full queue means Mongo is behind, so shed load instead of queueing without bound
+        if (!queued) {
+            metricsRecorder.ingestionRejected();
+            ResponseStatusException rejected = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many messages in flight, please retry");
+            pending.persisted().completeExceptionally(rejected);
+            throw rejected;
+        }
+        return pending;
+    }
+
+    private void drain() {
+        List<PendingMessage> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Everything that queued while the previous batch was being written goes out together
+                batch.add(first);
+                queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Message ingestion writer failed", e);
+                batch.forEach(pending -> pending.persisted().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingMessage> batch) {
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(pending.message(), document);
+            documents.add(document);
+        }
+
+        Map<Integer, BulkWriteError> failed = new HashMap<>();
+        RuntimeException failure = null;
+        try {
+            collection.insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Unordered: everything not listed in the write errors was inserted
+            e.getWriteErrors().forEach(error -> failed.put(error.getIndex(), error));
+            failure = e;
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                failed.put(i, null);
+            }
+            failure = e;
+        }
+        metricsRecorder.ingestionBatch(batch.size());
+
+        if (failure != null) {
+            log.error("Failed to store {} of {} queued messages", failed.size(), batch.size(), failure);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMessage pending = batch.get(i);
+            if (!failed.containsKey(i)) {
+                // Acknowledge first; the sender does not wait for the side effects
+                pending.persisted().complete(pending.message());
+                dispatch(pending);
+                continue;
+            }
+
+            BulkWriteError error = failed.get(i);
+            Message stored = isDuplicateKey(error) && pending.message().getClientMessageId() != null ? findStored(pending.message()) : null;
+            if (stored != null) {
+                // Another attempt with the same clientMessageId got there first and already ran the side effects
+                pending.persisted().complete(stored);
+            } else {
+                pending.persisted().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void dispatch(PendingMessage pending) {
+        Message message = pending.message();
+        String orderingKey = message.getConversationId() != null ? message.getConversationId() : message.getGroupId();
+        ThreadPoolExecutor lane = lanes[orderingKey == null ? 0 : Math.floorMod(orderingKey.hashCode(), lanes.length)];
+        try {
+            lane.execute(() -> {
+                try {
+                    pending.onPersisted().accept(message);
+                } catch (RuntimeException e) {
+                    log.warn("Post-insert handling failed for message {}", message.getId(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Post-insert handling skipped for message {}", message.getId(), e);
+        }
+    }
+
+    // Backpressure: a full lane makes the writer wait, which fills the ingestion queue and sheds load at the front door
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Side-effect lane is shut down");
+        }
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
+    private Message findStored(Message message) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("senderId").is(message.getSenderId())
+                .and("clientMessageId").is(message.getClientMessageId())), Message.class);
+    }
+
+    private static String dedupeKey(Message message) {
+        return message.getClientMessageId() == null ? null : message.getSenderId() + "|" + message.getClientMessageId();
+    }
+
+    private static boolean isDuplicateKey(BulkWriteError error) {
+        return error != null && ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Stop accepting, let the writer empty the queue, then let the lanes finish what the writer handed them
+        running = false;
+        writer.join(properties.getPersistTimeoutMs());
+        if (!queue.isEmpty()) {
+            log.warn("Shut down with {} messages still queued", queue.size());
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(properties.getPersistTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                log.warn("Shut down with {} post-insert tasks still pending", lane.getQueue().size());
+            }
+        }
+    }
+
+    private record PendingMessage(Message message, Consumer<Message> onPersisted, CompletableFuture<Message> persisted) {
+    }
+}
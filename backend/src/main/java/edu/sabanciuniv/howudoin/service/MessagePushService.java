@@ -0,0 +1,49 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class MessagePushService {
+
+    public static final String DIRECT_QUEUE = "/queue/messages";
+    public static final String GROUP_QUEUE = "/queue/group-messages";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SseMessageHub sseMessageHub;
+    private final SimpUserRegistry userRegistry;
+
+    public void pushDirectMessage(Message message) {
+        // Also push to the sender so their other sessions stay in sync
+        MessageResponse payload = MessageResponse.from(message);
+        messagingTemplate.convertAndSendToUser(message.getRecipientId(), DIRECT_QUEUE, payload);
+        messagingTemplate.convertAndSendToUser(message.getSenderId(), DIRECT_QUEUE, payload);
+        sseMessageHub.publish(message.getRecipientId(), message);
+        sseMessageHub.publish(message.getSenderId(), message);
+    }
+
+    // Only members with an open STOMP session or event stream are sent anything; returns who that was
+    public Set<String> pushGroupMessage(Message message, Collection<String> members) {
+        MessageResponse payload = MessageResponse.from(message);
+        Set<String> online = new HashSet<>();
+        for (String member : members) {
+            if (userRegistry.getUser(member) != null) {
+                messagingTemplate.convertAndSendToUser(member, GROUP_QUEUE, payload);
+                online.add(member);
+            }
+            if (sseMessageHub.publish(member, message)) {
+                online.add(member);
+            }
+        }
+        return online;
+    }
+}
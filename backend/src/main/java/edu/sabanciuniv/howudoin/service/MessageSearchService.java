@@ -0,0 +1,115 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.dto.MessageSearchResponse;
+import edu.sabanciuniv.howudoin.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+// Full-text search over message content, limited to the caller's direct conversations and current groups.
+// Backed by the text index on Message.content, so sends and deletes are searchable as soon as they are written.
+// Ranked by text score, newest first on ties; the cursor is the (score, id) of the last hit returned.
+@Service
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final GroupMembershipCache membershipCache;
+
+    public MessageSearchResponse search(String userEmail, String text, String cursor, int limit) {
+        if (text == null || text.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query must not be empty");
+        }
+        if (text.length() > MAX_QUERY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is too long");
+        }
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        // $text has to open the pipeline; Mongo merges the scope $match into the same stage
+        pipeline.add(Aggregation.match(TextCriteria.forDefaultLanguage().matching(text)));
+        pipeline.add(Aggregation.match(scope(userEmail)));
+        pipeline.add(context -> new Document("$addFields", new Document("score", new Document("$meta", "textScore"))));
+        if (cursor != null) {
+            pipeline.add(Aggregation.match(after(SearchCursor.decode(cursor))));
+        }
+        pipeline.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "score", "_id")));
+        // One extra hit tells us whether there is a next page
+        pipeline.add(Aggregation.limit(pageSize + 1));
+        pipeline.add(Aggregation.project("senderId", "recipientId", "groupId", "content", "timestamp", "isGroupMessage", "isRead", "score"));
+
+        List<Document> hits = mongoTemplate.aggregate(Aggregation.newAggregation(pipeline), Message.class, Document.class).getMappedResults();
+
+        List<MessageResponse> messages = new ArrayList<>(Math.min(hits.size(), pageSize));
+        for (int i = 0; i < hits.size() && i < pageSize; i++) {
+            messages.add(MessageResponse.from(mongoTemplate.getConverter().read(Message.class, hits.get(i))));
+        }
+
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            Document last = hits.get(pageSize - 1);
+            nextCursor = new SearchCursor(last.getDouble("score"), last.getObjectId("_id").toHexString()).encode();
+        }
+        return new MessageSearchResponse(messages, nextCursor);
+    }
+
+    // Direct messages the user sent or received, and messages in groups they are a member of now
+    private Criteria scope(String userEmail) {
+        Set<String> groupIds = membershipCache.getGroupIds(userEmail);
+        return new Criteria().andOperator(
+                Criteria.where("isDeleted").is(false),
+                new Criteria().orOperator(
+                        Criteria.where("isGroupMessage").is(false).and("senderId").is(userEmail),
+                        Criteria.where("isGroupMessage").is(false).and("recipientId").is(userEmail),
+                        Criteria.where("groupId").in(groupIds)
+                )
+        );
+    }
+
+    private Criteria after(SearchCursor cursor) {
+        return new Criteria().orOperator(
+                Criteria.where("score").lt(cursor.score()),
+                Criteria.where("score").is(cursor.score()).and("_id").lt(new ObjectId(cursor.id()))
+        );
+    }
+
+    private record SearchCursor(double score, String id) {
+
+        String encode() {
+            String raw = Double.toHexString(score) + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SearchCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                if (separator < 0 || !ObjectId.isValid(raw.substring(separator + 1))) {
+                    throw new IllegalArgumentException(cursor);
+                }
+                return new SearchCursor(Double.parseDouble(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search cursor");
+            }
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package edu.sabanciuniv.howudoin.service;
 
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
 import edu.sabanciuniv.howudoin.model.Message;
 import edu.sabanciuniv.howudoin.model.User;
 import edu.sabanciuniv.howudoin.repository.MessageRepository;
 import edu.sabanciuniv.howudoin.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -16,60 +24,95 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MessageService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final MessageRepository messageRepository;
+    private final MessageIngestionService messageIngestionService;
     private final UserRepository userRepository;
+    private final MessagePushService messagePushService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final UnreadCounterService unreadCounterService;
+    private final MongoTemplate mongoTemplate;
+    private final MetricsRecorder metricsRecorder;
+    private final ResourceVersionService resourceVersionService;
+    private final FriendGraphService friendGraphService;
 
     public Message sendMessage(String senderEmail, String recipientEmail, String content) {
-        // Validate sender
-        User sender = userRepository.findByEmail(senderEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found"));
-
-        // Validate recipient
-        User recipient = userRepository.findByEmail(recipientEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipient not found"));
+        return sendMessage(senderEmail, recipientEmail, content, null);
+    }
 
-        // Check if they are friends
-        if (!sender.getFriends().contains(recipientEmail)) {
+    public Message sendMessage(String senderEmail, String recipientEmail, String content, String clientMessageId) {
+        // Friends always both exist, so the user lookups only run to explain a refusal
+        if (!friendGraphService.areFriends(senderEmail, recipientEmail)) {
+            if (!userRepository.existsByEmail(senderEmail)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender not found");
+            }
+            if (!userRepository.existsByEmail(recipientEmail)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Recipient not found");
+            }
             throw new ResponseStatusException(
                 HttpStatus.FORBIDDEN, 
                 "Cannot send message. You must be friends with the recipient"
             );
         }
 
-        // Create and save message
+        // Create and queue message
         Message message = new Message();
         message.setSenderId(senderEmail);
         message.setRecipientId(recipientEmail);
+        message.setConversationId(Message.conversationKey(senderEmail, recipientEmail));
+        message.setClientMessageId(clientMessageId);
         message.setContent(content);
         message.setTimestamp(LocalDateTime.now());
         message.setGroupMessage(false);
         message.setRead(false);
         message.setDeleted(false);
 
-        return messageRepository.save(message);
+        // Summaries, counters and pushes follow once the message's batch is in Mongo
+        return messageIngestionService.ingest(message, saved -> {
+            conversationSummaryService.recordDirectMessage(saved);
+            resourceVersionService.bump(ResourceVersionService.conversationKey(saved.getConversationId()));
+            unreadCounterService.incrementDirect(recipientEmail);
+            metricsRecorder.directMessageSent();
+            messagePushService.pushDirectMessage(saved);
+        });
+    }
+
+    public List<MessageResponse> getConversationHistory(String userEmail, String otherEmail, LocalDateTime before, int limit) {
+        return getConversationHistory(userEmail, otherEmail, before, null, limit);
     }
 
-    public List<Message> getConversationHistory(String userEmail, String otherEmail) {
+    public List<MessageResponse> getConversationHistory(String userEmail, String otherEmail, LocalDateTime before, String beforeId, int limit) {
         // Validate both users exist
-        userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-        userRepository.findByEmail(otherEmail)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Other user not found"));
-
-        // Get all messages where:
-        // (sender = userEmail AND recipient = otherEmail) OR
-        // (sender = otherEmail AND recipient = userEmail)
-        List<Message> messages = messageRepository.findAll().stream()
-                .filter(msg -> !msg.isGroupMessage()) // Exclude group messages
-                .filter(msg -> !msg.isDeleted())      // Exclude deleted messages
-                .filter(msg -> 
-                    (msg.getSenderId().equals(userEmail) && msg.getRecipientId().equals(otherEmail)) ||
-                    (msg.getSenderId().equals(otherEmail) && msg.getRecipientId().equals(userEmail))
-                )
-                .sorted((m1, m2) -> m2.getTimestamp().compareTo(m1.getTimestamp()))
-                .toList();
-
-        return messages;
+        if (!userRepository.existsByEmail(userEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        if (!userRepository.existsByEmail(otherEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Other user not found");
+        }
+
+        // Newest first; pass the timestamp and id of the oldest message received as 'before' and 'beforeId' to get the next page
+        String conversationId = Message.conversationKey(userEmail, otherEmail);
+        Pageable page = PageRequest.of(0, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+
+        if (before == null) {
+            return messageRepository.findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(conversationId, page, MessageResponse.class);
+        }
+        if (beforeId == null) {
+            return messageRepository.findByConversationIdAndIsDeletedFalseAndTimestampBeforeOrderByTimestampDescIdDesc(
+                    conversationId, before, page, MessageResponse.class
+            );
+        }
+        return messageRepository.findConversationPageBefore(conversationId, before, HistoryCursor.beforeId(beforeId), page, MessageResponse.class);
+    }
+
+    // Version of the conversation's history, for conditional GETs; only the caller's own conversations are addressable
+    public String getConversationVersion(String userEmail, String otherEmail) {
+        // An unknown peer has no version; without this check it would get a 304 instead of the 404 the full GET returns
+        if (!userRepository.existsByEmail(otherEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Other user not found");
+        }
+        return resourceVersionService.get(ResourceVersionService.conversationKey(Message.conversationKey(userEmail, otherEmail)));
     }
 
     public void markMessageAsRead(String messageId, String userEmail) {
@@ -77,13 +120,54 @@ public class MessageService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Message not found"));
 
         // Verify the user is the recipient
-        if (!message.getRecipientId().equals(userEmail)) {
+        if (!userEmail.equals(message.getRecipientId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot mark this message as read");
         }
 
+        if (message.isRead()) {
+            return;
+        }
+
         message.setRead(true);
         message.setReadAt(LocalDateTime.now());
         messageRepository.save(message);
+        resourceVersionService.bump(ResourceVersionService.conversationKey(message.getConversationId()));
+        conversationSummaryService.recordDirectMessageRead(message);
+        unreadCounterService.decrementDirect(userEmail);
+    }
+
+    public long markConversationAsRead(String userEmail, String otherEmail, LocalDateTime upTo) {
+        if (!userRepository.existsByEmail(otherEmail)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Other user not found");
+        }
+
+        // A point in the future would move the watermark past messages that have not been sent yet
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime readUpTo = upTo == null || upTo.isAfter(now) ? now : upTo;
+
+        // Nothing to write if the watermark already covers this point. The watermark only moves after a successful update,
+        // so a failed attempt is retried in full next time.
+        LocalDateTime watermark = conversationSummaryService.getReadWatermark(userEmail, otherEmail);
+        if (watermark != null && !watermark.isBefore(readUpTo)) {
+            return 0;
+        }
+
+        // One updateMany instead of a find and save per message
+        Query unread = Query.query(Criteria.where("conversationId").is(Message.conversationKey(userEmail, otherEmail))
+                .and("recipientId").is(userEmail)
+                .and("isRead").is(false)
+                .and("isDeleted").is(false)
+                .and("timestamp").lte(readUpTo));
+        long marked = mongoTemplate.updateMulti(unread, new Update().set("isRead", true).set("readAt", now), Message.class)
+                .getModifiedCount();
+        conversationSummaryService.advanceReadWatermark(userEmail, otherEmail, readUpTo);
+
+        if (marked > 0) {
+            resourceVersionService.bump(ResourceVersionService.conversationKey(Message.conversationKey(userEmail, otherEmail)));
+            conversationSummaryService.recordDirectMessagesRead(userEmail, otherEmail, readUpTo, marked);
+            unreadCounterService.decrementDirect(userEmail, marked);
+        }
+        return marked;
     }
 
     public void deleteMessage(String messageId, String userEmail) {
@@ -91,26 +175,39 @@ public class MessageService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Message not found"));
 
         // Verify the user is either sender or recipient
-        if (!message.getSenderId().equals(userEmail) && !message.getRecipientId().equals(userEmail)) {
+        if (!userEmail.equals(message.getSenderId()) && !userEmail.equals(message.getRecipientId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot delete this message");
         }
 
+        if (message.isDeleted()) {
+            return;
+        }
+
+        boolean wasUnread = !message.isRead();
         message.setDeleted(true);
         message.setDeletedAt(LocalDateTime.now());
         messageRepository.save(message);
+
+        if (message.isGroupMessage()) {
+            resourceVersionService.bump(ResourceVersionService.groupKey(message.getGroupId()));
+        } else {
+            resourceVersionService.bump(ResourceVersionService.conversationKey(message.getConversationId()));
+            conversationSummaryService.recordDirectMessageDeleted(message, wasUnread);
+            if (wasUnread) {
+                unreadCounterService.decrementDirect(message.getRecipientId());
+            }
+        }
     }
 
     public long getUnreadMessageCount(String userEmail) {
-        return messageRepository.countByRecipientIdAndIsReadFalseAndIsDeletedFalse(userEmail);
+        return unreadCounterService.getDirectUnread(userEmail);
     }
 
-    public List<Message> getUnreadMessages(String userEmail) {
-        return messageRepository.findByRecipientIdAndIsReadFalseAndIsDeletedFalse(userEmail);
+    public List<MessageResponse> getUnreadMessages(String userEmail) {
+        return messageRepository.findByRecipientIdAndIsReadFalseAndIsDeletedFalse(userEmail, MessageResponse.class);
     }
 
-    public List<Message> getRecentConversations(String userEmail) {
-        return messageRepository.findDistinctBySenderIdOrRecipientIdOrderByTimestampDesc(
-                userEmail, userEmail
-        );
+    public List<ConversationSummary> getRecentConversations(String userEmail, int limit) {
+        return conversationSummaryService.getInbox(userEmail, limit);
     }
 }
@@ -0,0 +1,80 @@
+package edu.sabanciuniv.howudoin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// Business counters; HTTP, repository and Mongo driver timers come from Spring Boot's auto-configuration
+@Component
+public class MetricsRecorder {
+
+    private final MeterRegistry registry;
+    private final Counter directMessagesSent;
+    private final Counter groupMessagesSent;
+    private final Counter friendRequestsSent;
+    private final Counter friendRequestsAccepted;
+    private final Counter ingestionRejected;
+    private final Counter passwordHashingRejected;
+    private final DistributionSummary ingestionBatchSize;
+
+    public MetricsRecorder(MeterRegistry registry) {
+        this.registry = registry;
+        this.directMessagesSent = Counter.builder("howudoin.messages.sent").tag("type", "direct").register(registry);
+        this.groupMessagesSent = Counter.builder("howudoin.messages.sent").tag("type", "group").register(registry);
+        this.friendRequestsSent = Counter.builder("howudoin.friend.requests").tag("action", "sent").register(registry);
+        this.friendRequestsAccepted = Counter.builder("howudoin.friend.requests").tag("action", "accepted").register(registry);
+        this.ingestionRejected = Counter.builder("howudoin.ingestion.rejected").register(registry);
+        this.passwordHashingRejected = Counter.builder("howudoin.password.hashing.rejected").register(registry);
+        this.ingestionBatchSize = DistributionSummary.builder("howudoin.ingestion.batch.size").register(registry);
+    }
+
+    public void directMessageSent() {
+        directMessagesSent.increment();
+    }
+
+    public void groupMessageSent() {
+        groupMessagesSent.increment();
+    }
+
+    public void friendRequestSent() {
+        friendRequestsSent.increment();
+    }
+
+    public void friendRequestAccepted() {
+        friendRequestsAccepted.increment();
+    }
+
+    public void authFailure(String reason) {
+        registry.counter("howudoin.auth.failures", "reason", reason).increment();
+    }
+
+    public void ingestionQueue(Collection<?> queue) {
+        Gauge.builder("howudoin.ingestion.queue.size", queue, Collection::size).register(registry);
+    }
+
+    public void ingestionRejected() {
+        ingestionRejected.increment();
+    }
+
+    public void ingestionBatch(int size) {
+        ingestionBatchSize.record(size);
+    }
+
+    public void friendGraph(FriendGraph graph) {
+        Gauge.builder("howudoin.friend.graph.users", graph, FriendGraph::userCount).register(registry);
+        Gauge.builder("howudoin.friend.graph.edges", graph, FriendGraph::edgeCount).register(registry);
+        Gauge.builder("howudoin.friend.graph.size", graph, FriendGraph::estimatedBytes).baseUnit("bytes").register(registry);
+    }
+
+    public void passwordHashingQueue(Collection<?> queue) {
+        Gauge.builder("howudoin.password.hashing.queue.size", queue, Collection::size).register(registry);
+    }
+
+    public void passwordHashingRejected() {
+        passwordHashingRejected.increment();
+    }
+}
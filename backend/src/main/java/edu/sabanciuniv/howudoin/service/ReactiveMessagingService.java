@@ -0,0 +1,146 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.dto.GroupDetailsResponse;
+import edu.sabanciuniv.howudoin.dto.GroupSummaryResponse;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.repository.reactive.ReactiveGroupRepository;
+import edu.sabanciuniv.howudoin.repository.reactive.ReactiveMessageRepository;
+import edu.sabanciuniv.howudoin.repository.reactive.ReactiveUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+// Non-blocking read paths for messaging; writes go through the blocking services so summaries, counters and pushes stay in one place
+@Service
+@RequiredArgsConstructor
+public class ReactiveMessagingService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private final ReactiveMessageRepository messageRepository;
+    private final ReactiveGroupRepository groupRepository;
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MessageService messageService;
+    private final GroupService groupService;
+    private final GroupFanoutService groupFanoutService;
+    private final GroupMembershipCache membershipCache;
+    private final SseMessageHub sseMessageHub;
+
+    public Mono<Message> sendMessage(String senderEmail, String recipientEmail, String content, String clientMessageId) {
+        return Mono.fromCallable(() -> messageService.sendMessage(senderEmail, recipientEmail, content, clientMessageId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Flux<MessageResponse> getConversationHistory(String userEmail, String otherEmail, LocalDateTime before, String beforeId, int limit) {
+        // Validate both users exist
+        Mono<Void> usersExist = requireUser(userEmail, "User not found")
+                .then(requireUser(otherEmail, "Other user not found"));
+
+        // Newest first; pass the timestamp and id of the oldest message received as 'before' and 'beforeId' to get the next page
+        String conversationId = Message.conversationKey(userEmail, otherEmail);
+        Pageable page = PageRequest.of(0, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+
+        return usersExist.thenMany(Flux.defer(() -> {
+            if (before == null) {
+                return messageRepository.findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(conversationId, page, MessageResponse.class);
+            }
+            if (beforeId == null) {
+                return messageRepository.findByConversationIdAndIsDeletedFalseAndTimestampBeforeOrderByTimestampDescIdDesc(conversationId, before, page, MessageResponse.class);
+            }
+            return messageRepository.findConversationPageBefore(conversationId, before, HistoryCursor.beforeId(beforeId), page, MessageResponse.class);
+        }));
+    }
+
+    public Mono<Message> sendGroupMessage(String senderEmail, String groupId, String content, String clientMessageId) {
+        return Mono.fromCallable(() -> groupService.sendGroupMessage(senderEmail, groupId, content, clientMessageId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Flux<MessageResponse> getGroupMessages(String groupId, String userEmail, LocalDateTime before, String beforeId, int limit) {
+        // Opening the group counts as reading it; paging back through older messages does not
+        Pageable page = PageRequest.of(0, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        return requireMembership(groupId, userEmail)
+                .flatMap(group -> before != null ? Mono.<Void>empty()
+                        : Mono.<Void>fromRunnable(() -> groupFanoutService.markRead(group, userEmail))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                .thenMany(Flux.defer(() -> {
+                    if (before == null) {
+                        return messageRepository.findByGroupIdOrderByTimestampDescIdDesc(groupId, page, MessageResponse.class);
+                    }
+                    if (beforeId == null) {
+                        return messageRepository.findByGroupIdAndTimestampBeforeOrderByTimestampDescIdDesc(groupId, before, page, MessageResponse.class);
+                    }
+                    return messageRepository.findGroupPageBefore(groupId, before, HistoryCursor.beforeId(beforeId), page, MessageResponse.class);
+                }));
+    }
+
+    // Oldest first; the driver only pulls the next cursor batch once the client has consumed the last one
+    public Flux<MessageResponse> streamGroupMessages(String groupId, String userEmail) {
+        Query query = Query.query(Criteria.where("groupId").is(groupId))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        return requireMembership(groupId, userEmail)
+                .thenMany(mongoTemplate.query(Message.class).as(MessageResponse.class).matching(query).all());
+    }
+
+    public Mono<Set<String>> getGroupMembers(String groupId, String userEmail) {
+        return requireMembership(groupId, userEmail).map(GroupMembership::members);
+    }
+
+    public Flux<GroupSummaryResponse> getUserGroups(String userEmail) {
+        return requireUser(userEmail, "User not found")
+                .then(Mono.fromCallable(() -> membershipCache.getGroupIds(userEmail)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMapMany(groupIds -> {
+                    Query query = Query.query(Criteria.where("_id").in(groupIds));
+                    query.fields()
+                            .include("name", "creatorId", "lastMessageTimestamp")
+                            .project(ArrayOperators.Size.lengthOfArray("members")).as("memberCount");
+                    return mongoTemplate.query(Group.class).as(GroupSummaryResponse.class).matching(query).all();
+                });
+    }
+
+    public Mono<GroupDetailsResponse> getGroupDetails(String groupId, String userEmail) {
+        return requireMembership(groupId, userEmail)
+                .then(groupRepository.findById(groupId))
+                .map(GroupDetailsResponse::from);
+    }
+
+    // Direct and group messages addressed to the user, as they are sent
+    public Flux<MessageResponse> subscribe(String userEmail) {
+        return sseMessageHub.subscribe(userEmail).map(MessageResponse::from);
+    }
+
+    private Mono<Void> requireUser(String email, String notFoundMessage) {
+        return userRepository.existsByEmail(email)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>empty()
+                        : Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage)));
+    }
+
+    // Served from the membership cache; only a miss goes to Mongo, on the blocking scheduler
+    private Mono<GroupMembership> requireMembership(String groupId, String userEmail) {
+        return Mono.defer(() -> Mono.justOrEmpty(membershipCache.getIfPresent(groupId)))
+                .switchIfEmpty(Mono.fromCallable(() -> membershipCache.get(groupId)).subscribeOn(Schedulers.boundedElastic()))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Group not found")))
+                .flatMap(membership -> membership.contains(userEmail)
+                        ? Mono.just(membership)
+                        : Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a member of this group")));
+    }
+}
@@ -0,0 +1,80 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.model.ResourceVersion;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Versions behind the ETags of the list endpoints, so a conditional GET is answered from one small document
+// instead of loading the list. Versions are random rather than counters, so a lost document never repeats an old ETag.
+@Service
+@RequiredArgsConstructor
+public class ResourceVersionService {
+
+    // Resources that have not changed since versioning was introduced
+    private static final String INITIAL_VERSION = "0";
+
+    private final MongoTemplate mongoTemplate;
+
+    public static String conversationKey(String conversationId) {
+        return "conversation:" + conversationId;
+    }
+
+    public static String groupKey(String groupId) {
+        return "group:" + groupId;
+    }
+
+    public static String friendsKey(String userEmail) {
+        return "friends:" + userEmail;
+    }
+
+    // Call after the change is written, so a reader never sees the new version with the old data
+    public void bump(String... keys) {
+        if (keys.length == 1) {
+            mongoTemplate.upsert(byId(keys[0]), newVersion(), ResourceVersion.class);
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResourceVersion.class);
+        for (String key : keys) {
+            bulk.upsert(byId(key), newVersion());
+        }
+        bulk.execute();
+    }
+
+    // Call before reading the data, for the same reason
+    public String get(String key) {
+        ResourceVersion version = mongoTemplate.findById(key, ResourceVersion.class);
+        return version != null ? version.getVersion() : INITIAL_VERSION;
+    }
+
+    // One version for a list made of several resources; changes when any of them changes or the set itself does
+    public String combine(Collection<String> keys) {
+        Map<String, String> versions = mongoTemplate.find(Query.query(Criteria.where("_id").in(keys)), ResourceVersion.class)
+                .stream()
+                .collect(Collectors.toMap(ResourceVersion::getId, ResourceVersion::getVersion));
+        String combined = keys.stream()
+                .sorted()
+                .map(key -> key + "=" + versions.getOrDefault(key, INITIAL_VERSION))
+                .collect(Collectors.joining(","));
+        return DigestUtils.md5DigestAsHex(combined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Query byId(String key) {
+        return Query.query(Criteria.where("_id").is(key));
+    }
+
+    private Update newVersion() {
+        return Update.update("version", new ObjectId().toHexString());
+    }
+}
@@ -0,0 +1,49 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.model.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-user sinks behind the server-sent event stream; only users with an open stream have one
+@Component
+public class SseMessageHub {
+
+    private final Map<String, UserStream> streams = new ConcurrentHashMap<>();
+
+    public Flux<Message> subscribe(String userEmail) {
+        return Flux.defer(() -> {
+            // Counted under the map lock, so a stream that is closing cannot remove the sink this subscription is about to join
+            UserStream stream = streams.compute(userEmail, (email, existing) -> {
+                UserStream current = existing != null ? existing : new UserStream();
+                current.subscribers++;
+                return current;
+            });
+            return stream.sink.asFlux()
+                    .doFinally(signal -> streams.computeIfPresent(userEmail, (email, current) ->
+                            current == stream && --current.subscribers == 0 ? null : current));
+        });
+    }
+
+    // Returns false when the user has no open stream
+    public boolean publish(String userEmail, Message message) {
+        UserStream stream = streams.get(userEmail);
+        if (stream == null) {
+            return false;
+        }
+        // Best effort and never blocks the caller: if the emit fails the push is dropped and the client catches up from history
+        synchronized (stream) {
+            stream.sink.tryEmitNext(message);
+        }
+        return true;
+    }
+
+    private static final class UserStream {
+        private final Sinks.Many<Message> sink = Sinks.many().multicast().directBestEffort();
+        // Guarded by the streams map entry lock
+        private int subscribers;
+    }
+}
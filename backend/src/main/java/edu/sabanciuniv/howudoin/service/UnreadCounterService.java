@@ -0,0 +1,394 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import edu.sabanciuniv.howudoin.config.UnreadCounterProperties;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.model.UnreadCounter;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// In-memory unread counters with write-behind to the unreadCounters collection.
+// Only the changes made since the last flush are written, as $inc, so instances sharing the collection add to each other's counts
+// instead of overwriting them; a cached entry is reloaded unread.cache-ttl-ms after it was read, which picks up the other instances' changes.
+// Every change runs inside a compute on the cache entry, so it cannot land on an instance that eviction has already flushed.
+@Service
+public class UnreadCounterService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, UserCounters> counters;
+
+    // While reconcile rewrites the stored counts, evicted changes wait here instead of being written underneath it
+    private final Map<String, Changes> deferred = new ConcurrentHashMap<>();
+    private volatile boolean reconciling;
+
+    public UnreadCounterService(MongoTemplate mongoTemplate, UnreadCounterProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfter(new ReloadAfter(Duration.ofMillis(properties.getCacheTtlMs())))
+                .evictionListener((String email, UserCounters userCounters, RemovalCause cause) -> {
+                    Changes changes = userCounters == null ? null : userCounters.drain();
+                    if (changes == null) {
+                        return;
+                    }
+                    if (reconciling) {
+                        deferred.merge(email, changes, Changes::then);
+                    } else {
+                        mongoTemplate.upsert(byId(email), changes.toUpdate(), UnreadCounter.class);
+                    }
+                })
+                .build();
+    }
+
+    public long getDirectUnread(String userEmail) {
+        return countersFor(userEmail).direct();
+    }
+
+    public Map<String, Long> getGroupUnread(String userEmail) {
+        return countersFor(userEmail).groups();
+    }
+
+    public void incrementDirect(String userEmail) {
+        update(userEmail, userCounters -> userCounters.addDirect(1));
+    }
+
+    public void decrementDirect(String userEmail) {
+        decrementDirect(userEmail, 1);
+    }
+
+    public void decrementDirect(String userEmail, long amount) {
+        update(userEmail, userCounters -> userCounters.addDirect(-amount));
+    }
+
+    public void incrementGroup(String userEmail, String groupId) {
+        incrementGroup(userEmail, groupId, 1);
+    }
+
+    public void incrementGroup(String userEmail, String groupId, long amount) {
+        update(userEmail, userCounters -> userCounters.addGroup(groupId, amount));
+    }
+
+    // Replaces a group's count outright, e.g. when it is rebuilt from the member's read watermark
+    public void resetGroup(String userEmail, String groupId, long count) {
+        update(userEmail, userCounters -> userCounters.replaceGroup(groupId, count));
+    }
+
+    public void clearGroup(String userEmail, String groupId) {
+        resetGroup(userEmail, groupId, 0);
+    }
+
+    @Scheduled(fixedDelayString = "${unread.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        if (!reconciling) {
+            flushPending();
+        }
+    }
+
+    // Rebuilds every counter from the source collections in case they drifted.
+    // Changes made while the rebuild runs stay pending and are added on top of the rebuilt values by the flush at the end.
+    @Scheduled(cron = "${unread.reconcile-cron:0 0 4 * * *}")
+    public void reconcile() {
+        flushPending();
+        reconciling = true;
+        try {
+            Map<String, Long> direct = new HashMap<>();
+            Aggregation directAggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("isGroupMessage").is(false).and("isRead").is(false).and("isDeleted").is(false)),
+                    Aggregation.group("recipientId").count().as("count")
+            );
+            mongoTemplate.aggregate(directAggregation, Message.class, Document.class)
+                    .forEach(doc -> direct.put(doc.getString("_id"), ((Number) doc.get("count")).longValue()));
+
+            // Groups have no per-message read state, so the inbox summaries are their source of truth
+            Map<String, Map<String, Long>> groups = new HashMap<>();
+            Query groupQuery = Query.query(Criteria.where("isGroup").is(true).and("unreadCount").gt(0));
+            try (Stream<ConversationSummary> summaries = mongoTemplate.stream(groupQuery, ConversationSummary.class)) {
+                summaries.forEach(summary -> groups
+                        .computeIfAbsent(summary.getOwnerId(), owner -> new HashMap<>())
+                        .put(summary.getPeerId(), summary.getUnreadCount()));
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounter.class);
+            Query existingQuery = new Query();
+            existingQuery.fields().include("_id");
+            try (Stream<UnreadCounter> existing = mongoTemplate.stream(existingQuery, UnreadCounter.class)) {
+                existing.map(UnreadCounter::getId)
+                        .filter(email -> !direct.containsKey(email) && !groups.containsKey(email))
+                        .forEach(email -> bulk.updateOne(byId(email), countsUpdate(0, Map.of())));
+            }
+            direct.keySet().forEach(email -> bulk.upsert(byId(email), countsUpdate(direct.get(email), groups.getOrDefault(email, Map.of()))));
+            groups.keySet().stream()
+                    .filter(email -> !direct.containsKey(email))
+                    .forEach(email -> bulk.upsert(byId(email), countsUpdate(0, groups.get(email))));
+            bulk.execute();
+
+            counters.asMap().keySet().forEach(email -> counters.asMap().computeIfPresent(email, (key, userCounters) -> {
+                userCounters.rebase(direct.getOrDefault(key, 0L), groups.getOrDefault(key, Map.of()));
+                return userCounters;
+            }));
+        } finally {
+            reconciling = false;
+            deferred.keySet().forEach(email -> {
+                Changes changes = deferred.remove(email);
+                if (changes != null) {
+                    // Drained from an evicted instance, so the cached one never counted them as stored
+                    update(email, userCounters -> userCounters.restore(changes, false));
+                }
+            });
+        }
+        flushPending();
+    }
+
+    private void flushPending() {
+        List<Drained> drained = new ArrayList<>();
+        for (String email : counters.asMap().keySet()) {
+            counters.asMap().computeIfPresent(email, (key, userCounters) -> {
+                Changes changes = userCounters.drain();
+                if (changes != null) {
+                    drained.add(new Drained(key, userCounters, changes));
+                }
+                return userCounters;
+            });
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounter.class);
+        drained.forEach(entry -> bulk.upsert(byId(entry.email()), entry.changes().toUpdate()));
+
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: only the listed writes failed, the rest were applied and must not be sent again
+            e.getErrors().forEach(error -> restore(drained.get(error.getIndex())));
+            throw e;
+        } catch (RuntimeException e) {
+            // The write may still have been applied; a double count is corrected by the next reconcile, a lost one is not
+            drained.forEach(this::restore);
+            throw e;
+        }
+    }
+
+    private void restore(Drained entry) {
+        update(entry.email(), userCounters -> userCounters.restore(entry.changes(), userCounters == entry.from()));
+    }
+
+    private UserCounters countersFor(String userEmail) {
+        return counters.get(userEmail, this::load);
+    }
+
+    // Atomic with eviction: the eviction listener runs under the same entry lock and flushes whatever this wrote
+    private void update(String userEmail, Consumer<UserCounters> change) {
+        counters.asMap().compute(userEmail, (email, existing) -> {
+            UserCounters userCounters = existing != null ? existing : load(email);
+            change.accept(userCounters);
+            return userCounters;
+        });
+    }
+
+    private UserCounters load(String userEmail) {
+        UnreadCounter stored = mongoTemplate.findById(userEmail, UnreadCounter.class);
+        if (stored == null) {
+            // First access for this user: seed from the source collections. Another instance may be seeding the same user,
+            // so the seed is only inserted if no document exists yet, and whichever document won is used.
+            Query directQuery = Query.query(Criteria.where("recipientId").is(userEmail).and("isRead").is(false).and("isDeleted").is(false));
+            Map<String, Long> groups = new HashMap<>();
+            Query groupQuery = Query.query(Criteria.where("ownerId").is(userEmail).and("isGroup").is(true).and("unreadCount").gt(0));
+            mongoTemplate.find(groupQuery, ConversationSummary.class)
+                    .forEach(summary -> groups.put(summary.getPeerId(), summary.getUnreadCount()));
+
+            Update seed = new Update()
+                    .setOnInsert("directUnread", mongoTemplate.count(directQuery, Message.class))
+                    .setOnInsert("groupUnread", groups);
+            stored = mongoTemplate.findAndModify(byId(userEmail), seed, FindAndModifyOptions.options().upsert(true).returnNew(true), UnreadCounter.class);
+        }
+        return new UserCounters(stored.getDirectUnread(), stored.getGroupUnread());
+    }
+
+    private static Query byId(String userEmail) {
+        return Query.query(Criteria.where("_id").is(userEmail));
+    }
+
+    private Update countsUpdate(long direct, Map<String, Long> groups) {
+        return new Update()
+                .set("directUnread", direct)
+                .set("groupUnread", groups);
+    }
+
+    // Counts from load rather than from the last change, so an entry that keeps changing is still reloaded
+    private record ReloadAfter(Duration ttl) implements Expiry<String, UserCounters> {
+
+        @Override
+        public long expireAfterCreate(String email, UserCounters userCounters, long currentTime) {
+            return ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String email, UserCounters userCounters, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String email, UserCounters userCounters, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private record Drained(String email, UserCounters from, Changes changes) {
+    }
+
+    // Changes not yet written: direct and group deltas go out as $inc, groups replaced outright as $set of their new count
+    private record Changes(long direct, Map<String, Long> groups, Set<String> replaced) {
+
+        // These changes followed by the later ones
+        private Changes then(Changes later) {
+            Map<String, Long> mergedGroups = new HashMap<>(groups);
+            Set<String> mergedReplaced = new HashSet<>(replaced);
+            later.groups.forEach((groupId, value) -> {
+                if (later.replaced.contains(groupId)) {
+                    mergedGroups.put(groupId, value);
+                    mergedReplaced.add(groupId);
+                } else {
+                    mergedGroups.merge(groupId, value, Long::sum);
+                }
+            });
+            return new Changes(direct + later.direct, mergedGroups, mergedReplaced);
+        }
+
+        private Update toUpdate() {
+            Update update = new Update();
+            if (direct != 0) {
+                update.inc("directUnread", direct);
+            }
+            groups.forEach((groupId, value) -> {
+                if (replaced.contains(groupId)) {
+                    update.set("groupUnread." + groupId, value);
+                } else if (value != 0) {
+                    update.inc("groupUnread." + groupId, value);
+                }
+            });
+            return update;
+        }
+    }
+
+    private static final class UserCounters {
+        // What the collection held when loaded, plus every change this instance has since written
+        private long storedDirect;
+        private final Map<String, Long> storedGroups = new HashMap<>();
+
+        // Changes since the last flush; for a replaced group the value is its new count rather than a delta
+        private long directDelta;
+        private final Map<String, Long> groupDeltas = new HashMap<>();
+        private final Set<String> replacedGroups = new HashSet<>();
+
+        private UserCounters(long direct, Map<String, Long> groups) {
+            this.storedDirect = direct;
+            if (groups != null) {
+                storedGroups.putAll(groups);
+            }
+        }
+
+        private synchronized long direct() {
+            return Math.max(0, storedDirect + directDelta);
+        }
+
+        private synchronized Map<String, Long> groups() {
+            Set<String> groupIds = new HashSet<>(storedGroups.keySet());
+            groupIds.addAll(groupDeltas.keySet());
+            Map<String, Long> result = new HashMap<>();
+            groupIds.forEach(groupId -> {
+                long count = group(groupId);
+                if (count > 0) {
+                    result.put(groupId, count);
+                }
+            });
+            return result;
+        }
+
+        private long group(String groupId) {
+            long delta = groupDeltas.getOrDefault(groupId, 0L);
+            return replacedGroups.contains(groupId) ? delta : storedGroups.getOrDefault(groupId, 0L) + delta;
+        }
+
+        // A decrement never takes the count below zero
+        private synchronized void addDirect(long amount) {
+            directDelta += Math.max(amount, -direct());
+        }
+
+        private synchronized void addGroup(String groupId, long amount) {
+            groupDeltas.merge(groupId, amount, Long::sum);
+        }
+
+        private synchronized void replaceGroup(String groupId, long count) {
+            groupDeltas.put(groupId, count);
+            replacedGroups.add(groupId);
+        }
+
+        // Hands the pending changes to a write and counts them as stored; null when there is nothing to write
+        private synchronized Changes drain() {
+            if (directDelta == 0 && groupDeltas.isEmpty()) {
+                return null;
+            }
+            Changes changes = new Changes(directDelta, Map.copyOf(groupDeltas), Set.copyOf(replacedGroups));
+            storedDirect += directDelta;
+            groupDeltas.forEach((groupId, value) -> storedGroups.put(groupId,
+                    replacedGroups.contains(groupId) ? value : storedGroups.getOrDefault(groupId, 0L) + value));
+            directDelta = 0;
+            groupDeltas.clear();
+            replacedGroups.clear();
+            return changes;
+        }
+
+        // Puts back changes whose write failed, ahead of anything changed since; countedAsStored when this instance drained them
+        private synchronized void restore(Changes changes, boolean countedAsStored) {
+            Changes pending = changes.then(new Changes(directDelta, Map.copyOf(groupDeltas), Set.copyOf(replacedGroups)));
+            if (countedAsStored) {
+                storedDirect -= changes.direct();
+                changes.groups().forEach((groupId, value) -> {
+                    if (!changes.replaced().contains(groupId)) {
+                        storedGroups.merge(groupId, -value, Long::sum);
+                    }
+                });
+            }
+
+            directDelta = pending.direct();
+            groupDeltas.clear();
+            groupDeltas.putAll(pending.groups());
+            replacedGroups.clear();
+            replacedGroups.addAll(pending.replaced());
+        }
+
+        private synchronized void rebase(long rebuiltDirect, Map<String, Long> rebuiltGroups) {
+            storedDirect = rebuiltDirect;
+            storedGroups.clear();
+            storedGroups.putAll(rebuiltGroups);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.config.FriendGraphProperties;
+import edu.sabanciuniv.howudoin.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FriendGraphServiceTest {
+
+    private static final String USER = "alice@test.local";
+    private static final String OTHER = "bob@test.local";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private MetricsRecorder metricsRecorder;
+
+    private FriendGraphService friendGraphService;
+
+    @BeforeEach
+    void setUp() {
+        friendGraphService = new FriendGraphService(mongoTemplate, metricsRecorder, new FriendGraphProperties());
+    }
+
+    @Test
+    void confirmedMissIsServedFromCache() {
+        when(mongoTemplate.exists(any(Query.class), eq(User.class))).thenReturn(false);
+
+        assertThat(friendGraphService.areFriends(USER, OTHER)).isFalse();
+        assertThat(friendGraphService.areFriends(USER, OTHER)).isFalse();
+
+        verify(mongoTemplate, times(1)).exists(any(Query.class), eq(User.class));
+    }
+
+    @Test
+    void addingTheFriendshipDropsCachedMissesInBothDirections() {
+        when(mongoTemplate.exists(any(Query.class), eq(User.class))).thenReturn(false);
+        friendGraphService.areFriends(USER, OTHER);
+        friendGraphService.areFriends(OTHER, USER);
+
+        friendGraphService.addFriendship(USER, OTHER);
+
+        assertThat(friendGraphService.areFriends(USER, OTHER)).isTrue();
+        assertThat(friendGraphService.areFriends(OTHER, USER)).isTrue();
+        verify(mongoTemplate, times(2)).exists(any(Query.class), eq(User.class));
+    }
+
+    @Test
+    void runningSizeTotalsAgreeAcrossWritePaths() {
+        FriendGraph added = new FriendGraph();
+        long empty = added.estimatedBytes();
+        added.addFriendship(USER, OTHER);
+        added.addFriendship(USER, OTHER);
+
+        FriendGraph loaded = new FriendGraph();
+        loaded.setFriends(USER, List.of(OTHER, OTHER));
+        loaded.setFriends(OTHER, List.of(USER));
+
+        assertThat(added.edgeCount()).isEqualTo(1).isEqualTo(loaded.edgeCount());
+        assertThat(added.estimatedBytes()).isGreaterThan(empty).isEqualTo(loaded.estimatedBytes());
+    }
+}
@@ -0,0 +1,114 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.mongodb.client.result.UpdateResult;
+import edu.sabanciuniv.howudoin.dto.FriendRequestBatchResponse;
+import edu.sabanciuniv.howudoin.model.FriendRequest;
+import edu.sabanciuniv.howudoin.model.User;
+import edu.sabanciuniv.howudoin.repository.FriendRequestRepository;
+import edu.sabanciuniv.howudoin.repository.UserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FriendServiceTest {
+
+    private static final String USER = "alice@test.local";
+    private static final String ANSWERED = "bob@test.local";
+    private static final String ALREADY_ANSWERED = "carol@test.local";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private FriendRequestRepository friendRequestRepository;
+    @Mock
+    private MetricsRecorder metricsRecorder;
+    @Mock
+    private ResourceVersionService resourceVersionService;
+    @Mock
+    private FriendGraphService friendGraphService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulkOperations;
+    @InjectMocks
+    private FriendService friendService;
+
+    @Test
+    void respondToFriendRequestsRejectsMissingLists() {
+        assertThatThrownBy(() -> friendService.respondToFriendRequests(USER, null, List.of()))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> friendService.respondToFriendRequests(USER, List.of(), null))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void respondToFriendRequestsOnlyBefriendsSendersWhoseRequestWasStillPending() {
+        // carol's request was answered by a concurrent call after this one was sent, so only bob's carries this call's batch id
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FriendRequest.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.find(any(Query.class), eq(FriendRequest.class))).thenReturn(List.of(claimed(ANSWERED)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(bulkOperations);
+
+        FriendRequestBatchResponse response = friendService.respondToFriendRequests(USER, List.of(ANSWERED, ALREADY_ANSWERED, ANSWERED), List.of());
+
+        assertThat(response.getAccepted()).containsExactly(ANSWERED);
+        assertThat(response.getDeclined()).isEmpty();
+        verify(friendGraphService).addFriendship(USER, ANSWERED);
+        verify(metricsRecorder).friendRequestAccepted();
+        // One claim for the whole batch and one read of what it claimed
+        verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FriendRequest.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(FriendRequest.class));
+    }
+
+    @Test
+    void failedFriendshipWriteOnlyReopensTheRequestsThisCallAccepted() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(FriendRequest.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.find(any(Query.class), eq(FriendRequest.class))).thenReturn(List.of(claimed(ANSWERED)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("write failed"));
+
+        assertThatThrownBy(() -> friendService.respondToFriendRequests(USER, List.of(ANSWERED), List.of()))
+                .isInstanceOf(IllegalStateException.class);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), updates.capture(), eq(FriendRequest.class));
+        String batchId = updates.getAllValues().get(0).getUpdateObject().get("$set", Document.class).getString("batchId");
+        Document rollback = queries.getAllValues().get(1).getQueryObject();
+        assertThat(batchId).isNotNull();
+        assertThat(rollback.getString("batchId")).isEqualTo(batchId);
+        assertThat(rollback).doesNotContainKey("senderId");
+        verifyNoInteractions(friendGraphService);
+    }
+
+    private FriendRequest claimed(String sender) {
+        FriendRequest request = new FriendRequest();
+        request.setSenderId(sender);
+        request.setStatus(FriendRequest.RequestStatus.ACCEPTED);
+        return request;
+    }
+}
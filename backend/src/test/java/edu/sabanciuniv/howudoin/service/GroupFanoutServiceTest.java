@@ -0,0 +1,166 @@
+package edu.sabanciuniv.howudoin.service;
+
+import edu.sabanciuniv.howudoin.config.GroupFanoutProperties;
+import edu.sabanciuniv.howudoin.dto.DeliveryReceipts;
+import edu.sabanciuniv.howudoin.model.Group;
+import edu.sabanciuniv.howudoin.model.GroupDelivery;
+import edu.sabanciuniv.howudoin.model.Message;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupFanoutServiceTest {
+
+    private static final String GROUP_ID = "group-1";
+    private static final String SENDER = "alice@test.local";
+    private static final String MEMBER = "bob@test.local";
+    private static final String OTHER_MEMBER = "carol@test.local";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private MessagePushService messagePushService;
+    @Mock
+    private ConversationSummaryService conversationSummaryService;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private GroupFanoutService groupFanoutService;
+
+    @BeforeEach
+    void setUp() {
+        GroupFanoutProperties properties = new GroupFanoutProperties();
+        properties.setWriteThreshold(2);
+        groupFanoutService = new GroupFanoutService(properties, mongoTemplate, messagePushService, conversationSummaryService, unreadCounterService);
+    }
+
+    @Test
+    void getReceiptsCountsDeliveryRowsForOnWriteMessages() {
+        Message message = message(2);
+        // Both recipients have the message, one has read it
+        when(mongoTemplate.count(any(Query.class), eq(GroupDelivery.class)))
+                .thenAnswer(invocation -> invocation.<Query>getArgument(0).getQueryObject().containsKey("readAt") ? 1L : 2L);
+
+        DeliveryReceipts receipts = groupFanoutService.getReceipts(membership(SENDER, MEMBER, OTHER_MEMBER), message);
+
+        assertThat(receipts.getRecipients()).isEqualTo(2);
+        assertThat(receipts.getDelivered()).isEqualTo(2);
+        assertThat(receipts.getRead()).isEqualTo(1);
+        verifyNoInteractions(conversationSummaryService);
+    }
+
+    @Test
+    void getReceiptsUsesRecipientCountRecordedAtSendForOnReadMessages() {
+        // Sent to four members; two have left since, and only current members' watermarks are counted
+        Message message = message(4);
+        when(mongoTemplate.count(any(Query.class), eq(GroupDelivery.class))).thenReturn(0L);
+        when(conversationSummaryService.countGroupMembersPast(GROUP_ID, Set.of(MEMBER, OTHER_MEMBER), "lastDeliveredAt", message.getTimestamp())).thenReturn(2L);
+        when(conversationSummaryService.countGroupMembersPast(GROUP_ID, Set.of(MEMBER, OTHER_MEMBER), "lastReadAt", message.getTimestamp())).thenReturn(1L);
+
+        DeliveryReceipts receipts = groupFanoutService.getReceipts(membership(SENDER, MEMBER, OTHER_MEMBER), message);
+
+        assertThat(receipts.getRecipients()).isEqualTo(4);
+        assertThat(receipts.getDelivered()).isEqualTo(2);
+        assertThat(receipts.getRead()).isEqualTo(1);
+    }
+
+    @Test
+    void getReceiptsNeverCountsMoreReadersThanRecipientsForOnReadMessages() {
+        // Sent to one member; a member who joined later has read past it too
+        Message message = message(1);
+        when(mongoTemplate.count(any(Query.class), eq(GroupDelivery.class))).thenReturn(0L);
+        when(conversationSummaryService.countGroupMembersPast(eq(GROUP_ID), any(), any(), eq(message.getTimestamp()))).thenReturn(2L);
+
+        DeliveryReceipts receipts = groupFanoutService.getReceipts(membership(SENDER, MEMBER, OTHER_MEMBER), message);
+
+        assertThat(receipts.getRecipients()).isEqualTo(1);
+        assertThat(receipts.getDelivered()).isEqualTo(1);
+        assertThat(receipts.getRead()).isEqualTo(1);
+    }
+
+    @Test
+    void fanOutOnWriteRecordsTheGroupsLastMessage() {
+        Message message = message(1);
+        message.setContent("hello");
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GroupDelivery.class)).thenReturn(bulkOperations);
+
+        groupFanoutService.fanOut(message, membership(SENDER, MEMBER));
+
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Group.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set).containsEntry("lastMessageTimestamp", message.getTimestamp()).doesNotContainKey("fanoutOnRead");
+        verify(unreadCounterService).incrementGroup(MEMBER, GROUP_ID);
+        verify(conversationSummaryService).recordGroupMessage(message, Set.of(SENDER, MEMBER));
+    }
+
+    @Test
+    void syncModeSeedsCountersWhenGroupReturnsToFanOutOnWrite() {
+        Group group = group(true, SENDER, MEMBER);
+        when(conversationSummaryService.seedGroupSummaries(group)).thenReturn(Map.of(SENDER, 0L, MEMBER, 3L));
+
+        Group synced = groupFanoutService.syncMode(group);
+
+        assertThat(synced.isFanoutOnRead()).isFalse();
+        verify(mongoTemplate).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Group.class));
+        verify(unreadCounterService).resetGroup(MEMBER, GROUP_ID, 3);
+        verify(unreadCounterService).resetGroup(SENDER, GROUP_ID, 0);
+    }
+
+    @Test
+    void syncModeDoesNotSeedWhenGroupStartsFanningOutOnRead() {
+        Group group = group(false, SENDER, MEMBER, OTHER_MEMBER);
+
+        Group synced = groupFanoutService.syncMode(group);
+
+        assertThat(synced.isFanoutOnRead()).isTrue();
+        verifyNoInteractions(conversationSummaryService, unreadCounterService);
+    }
+
+    private Message message(int recipientCount) {
+        Message message = new Message();
+        message.setId("message-1");
+        message.setGroupId(GROUP_ID);
+        message.setSenderId(SENDER);
+        message.setTimestamp(LocalDateTime.now().minusMinutes(5));
+        message.setGroupMessage(true);
+        message.setRecipientCount(recipientCount);
+        return message;
+    }
+
+    private GroupMembership membership(String... members) {
+        return new GroupMembership(GROUP_ID, SENDER, Set.of(members));
+    }
+
+    private Group group(boolean fanoutOnRead, String... members) {
+        Group group = new Group();
+        group.setId(GROUP_ID);
+        group.setCreatorId(SENDER);
+        group.setMembers(new HashSet<>(Set.of(members)));
+        group.setFanoutOnRead(fanoutOnRead);
+        return group;
+    }
+}
@@ -0,0 +1,201 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import edu.sabanciuniv.howudoin.config.MessageIngestionProperties;
+import edu.sabanciuniv.howudoin.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageIngestionServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private MongoCollection<Document> collection;
+    private SimpleMeterRegistry registry;
+    private MessageIngestionProperties properties;
+    private MessageIngestionService service;
+    private final List<String> persisted = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        collection = mock(MongoCollection.class);
+        when(mongoTemplate.getCollectionName(Message.class)).thenReturn("messages");
+        when(mongoTemplate.getCollection("messages")).thenReturn(collection);
+        when(collection.withWriteConcern(any())).thenReturn(collection);
+
+        // Documents carry the content so a test can pick which one the bulk write rejects
+        MongoConverter converter = mock(MongoConverter.class);
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            ((Document) invocation.getArgument(1)).put("content", message.getContent());
+            return null;
+        }).when(converter).write(any(), any());
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        registry = new SimpleMeterRegistry();
+        properties = new MessageIngestionProperties();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void partialBulkFailureFailsOnlyTheRejectedMessages() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            if (documents.get(0).get("content").equals("blocker")) {
+                writerBusy.countDown();
+                release.await();
+                return null;
+            }
+            int rejected = documents.stream().map(document -> document.get("content")).toList().indexOf("rejected");
+            throw bulkWriteException(new BulkWriteError(121, "Document failed validation", new BsonDocument(), rejected));
+        });
+        service = start();
+
+        CompletableFuture<Message> blocker = send("blocker", null);
+        assertThat(writerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Queued behind the blocked writer, so they go out as one batch
+        CompletableFuture<Message> first = send("first", null);
+        CompletableFuture<Message> rejected = send("rejected", null);
+        CompletableFuture<Message> second = send("second", null);
+        awaitQueued(3);
+        release.countDown();
+
+        assertThat(blocker.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("blocker");
+        assertThat(first.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("second");
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("could not be stored");
+
+        awaitPersisted(3);
+        assertThat(persisted).containsExactlyInAnyOrder("blocker", "first", "second");
+    }
+
+    @Test
+    void duplicateClientMessageIdReturnsTheStoredCopy() {
+        Message stored = message("hello", "client-1");
+        stored.setId("0123456789abcdef01234567");
+        // Nothing stored when checked before queueing; the insert then loses the race to another attempt
+        when(mongoTemplate.findOne(any(Query.class), eq(Message.class))).thenReturn(null, stored);
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+                .thenThrow(bulkWriteException(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0)));
+        service = start();
+
+        Message result = service.ingest(message("hello", "client-1"), saved -> persisted.add(saved.getContent()));
+
+        assertThat(result.getId()).isEqualTo(stored.getId());
+        assertThat(persisted).isEmpty();
+    }
+
+    @Test
+    void timedOutSendCanBeRetriedWithoutADuplicate() throws Exception {
+        properties.setPersistTimeoutMs(200);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean inserted = new AtomicBoolean();
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            release.await();
+            inserted.set(true);
+            return null;
+        });
+        // Once the first attempt is written, the pre-queue lookup finds it, as Mongo would
+        when(mongoTemplate.findOne(any(Query.class), eq(Message.class)))
+                .thenAnswer(invocation -> inserted.get() ? message("hello", "client-1") : null);
+        service = start();
+
+        assertThatThrownBy(() -> service.ingest(message("hello", "client-1"), saved -> persisted.add(saved.getContent())))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // Whether the retry arrives while the first attempt is queued or after it is written, no second copy is queued
+        CompletableFuture<Message> retry = CompletableFuture.supplyAsync(
+                () -> service.ingest(message("hello", "client-1"), saved -> persisted.add(saved.getContent())));
+        release.countDown();
+
+        assertThat(retry.get(5, TimeUnit.SECONDS).getClientMessageId()).isEqualTo("client-1");
+        awaitPersisted(1);
+        verify(collection, times(1)).insertMany(anyList(), any(InsertManyOptions.class));
+        assertThat(persisted).containsExactly("hello");
+    }
+
+    private MessageIngestionService start() {
+        return new MessageIngestionService(mongoTemplate, properties, new MetricsRecorder(registry));
+    }
+
+    private CompletableFuture<Message> send(String content, String clientMessageId) {
+        return CompletableFuture.supplyAsync(() -> service.ingest(message(content, clientMessageId), saved -> persisted.add(saved.getContent())));
+    }
+
+    private Message message(String content, String clientMessageId) {
+        Message message = new Message();
+        message.setSenderId("alice@test.local");
+        message.setRecipientId("bob@test.local");
+        message.setConversationId(Message.conversationKey("alice@test.local", "bob@test.local"));
+        message.setClientMessageId(clientMessageId);
+        message.setContent(content);
+        return message;
+    }
+
+    private void awaitQueued(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("howudoin.ingestion.queue.size").gauge().value() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(registry.get("howudoin.ingestion.queue.size").gauge().value()).isEqualTo(count);
+    }
+
+    private void awaitPersisted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (persisted.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static MongoBulkWriteException bulkWriteException(BulkWriteError error) {
+        return new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of());
+    }
+}
@@ -0,0 +1,149 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.mongodb.MongoSocketException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.result.UpdateResult;
+import edu.sabanciuniv.howudoin.dto.MessageResponse;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.repository.MessageRepository;
+import edu.sabanciuniv.howudoin.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageServiceTest {
+
+    private static final String USER = "alice@test.local";
+    private static final String OTHER = "bob@test.local";
+
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ConversationSummaryService conversationSummaryService;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ResourceVersionService resourceVersionService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @InjectMocks
+    private MessageService messageService;
+
+    @Test
+    void markConversationAsReadRejectsUnknownPeer() {
+        when(userRepository.existsByEmail(OTHER)).thenReturn(false);
+
+        assertThatThrownBy(() -> messageService.markConversationAsRead(USER, OTHER, null))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verifyNoInteractions(conversationSummaryService, mongoTemplate);
+    }
+
+    @Test
+    void markConversationAsReadClampsFutureUpToAndAdvancesWatermarkAfterUpdate() {
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(Message.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+
+        LocalDateTime before = LocalDateTime.now();
+        long marked = messageService.markConversationAsRead(USER, OTHER, before.plusYears(1));
+
+        assertThat(marked).isEqualTo(2);
+        ArgumentCaptor<LocalDateTime> watermark = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(conversationSummaryService).advanceReadWatermark(eq(USER), eq(OTHER), watermark.capture());
+        assertThat(watermark.getValue()).isBetween(before, LocalDateTime.now());
+        verify(unreadCounterService).decrementDirect(USER, 2);
+    }
+
+    @Test
+    void failedUpdateLeavesWatermarkSoRetryMarksAgain() {
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+        when(mongoTemplate.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(Message.class)))
+                .thenThrow(new MongoSocketException("connection reset", new ServerAddress()))
+                .thenReturn(UpdateResult.acknowledged(3, 3L, null));
+
+        assertThatThrownBy(() -> messageService.markConversationAsRead(USER, OTHER, null)).isInstanceOf(MongoSocketException.class);
+        verify(conversationSummaryService, never()).advanceReadWatermark(anyString(), anyString(), any());
+
+        assertThat(messageService.markConversationAsRead(USER, OTHER, null)).isEqualTo(3);
+        verify(conversationSummaryService).advanceReadWatermark(eq(USER), eq(OTHER), any());
+    }
+
+    @Test
+    void getConversationVersionRejectsUnknownPeer() {
+        when(userRepository.existsByEmail(OTHER)).thenReturn(false);
+
+        assertThatThrownBy(() -> messageService.getConversationVersion(USER, OTHER))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verifyNoInteractions(resourceVersionService);
+    }
+
+    @Test
+    void getConversationHistoryReadsNewestPageByConversationKey() {
+        when(userRepository.existsByEmail(USER)).thenReturn(true);
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+        List<MessageResponse> page = List.of(new MessageResponse());
+        when(messageRepository.findByConversationIdAndIsDeletedFalseOrderByTimestampDescIdDesc(
+                Message.conversationKey(OTHER, USER), PageRequest.of(0, 1), MessageResponse.class)).thenReturn(page);
+
+        assertThat(messageService.getConversationHistory(USER, OTHER, null, null, 0)).isSameAs(page);
+    }
+
+    @Test
+    void getConversationHistoryContinuesAfterTimestampAndIdCursor() {
+        when(userRepository.existsByEmail(USER)).thenReturn(true);
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+        LocalDateTime before = LocalDateTime.now().minusHours(1);
+        ObjectId beforeId = new ObjectId();
+        List<MessageResponse> page = List.of(new MessageResponse());
+        when(messageRepository.findConversationPageBefore(
+                Message.conversationKey(USER, OTHER), before, beforeId, PageRequest.of(0, 100), MessageResponse.class)).thenReturn(page);
+
+        assertThat(messageService.getConversationHistory(USER, OTHER, before, beforeId.toHexString(), 500)).isSameAs(page);
+    }
+
+    @Test
+    void getConversationHistoryRejectsMalformedCursor() {
+        when(userRepository.existsByEmail(USER)).thenReturn(true);
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+
+        assertThatThrownBy(() -> messageService.getConversationHistory(USER, OTHER, LocalDateTime.now(), "not-an-id", 50))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void watermarkAtOrPastUpToSkipsTheUpdate() {
+        LocalDateTime upTo = LocalDateTime.now().minusMinutes(5);
+        when(userRepository.existsByEmail(OTHER)).thenReturn(true);
+        when(conversationSummaryService.getReadWatermark(USER, OTHER)).thenReturn(upTo.plusMinutes(1));
+
+        assertThat(messageService.markConversationAsRead(USER, OTHER, upTo)).isZero();
+        verifyNoInteractions(mongoTemplate);
+    }
+}
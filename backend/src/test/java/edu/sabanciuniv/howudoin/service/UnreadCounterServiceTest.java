@@ -0,0 +1,239 @@
+package edu.sabanciuniv.howudoin.service;
+
+import com.mongodb.MongoSocketWriteException;
+import com.mongodb.ServerAddress;
+import edu.sabanciuniv.howudoin.config.UnreadCounterProperties;
+import edu.sabanciuniv.howudoin.model.ConversationSummary;
+import edu.sabanciuniv.howudoin.model.Message;
+import edu.sabanciuniv.howudoin.model.UnreadCounter;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UnreadCounterServiceTest {
+
+    private static final String ALICE = "alice@test.local";
+    private static final String BOB = "bob@test.local";
+    private static final String GROUP = "group-1";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    // Stand-in for the unreadCounters collection; bulk writes are queued and applied on execute
+    private final Map<String, UnreadCounter> stored = new ConcurrentHashMap<>();
+    private final List<Map.Entry<Query, Update>> queuedWrites = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        stubStore();
+    }
+
+    @Test
+    void instancesSharingTheCollectionAddUpTheirChanges() {
+        UnreadCounterService first = new UnreadCounterService(mongoTemplate, properties(100));
+        UnreadCounterService second = new UnreadCounterService(mongoTemplate, properties(100));
+        first.incrementDirect(ALICE);
+        first.incrementDirect(ALICE);
+        second.incrementDirect(ALICE);
+        second.incrementGroup(ALICE, GROUP, 3);
+
+        first.flush();
+        second.flush();
+        // Nothing changed since the last flush, so nothing is written again
+        first.flush();
+
+        assertThat(stored.get(ALICE).getDirectUnread()).isEqualTo(3);
+        assertThat(stored.get(ALICE).getGroupUnread()).containsExactlyEntriesOf(Map.of(GROUP, 3L));
+    }
+
+    @Test
+    void failedFlushIsWrittenByTheNextOne() {
+        UnreadCounterService service = new UnreadCounterService(mongoTemplate, properties(100));
+        service.incrementDirect(ALICE);
+        service.incrementDirect(ALICE);
+        doAnswer(invocation -> {
+            queuedWrites.clear();
+            throw new MongoSocketWriteException("Connection reset", new ServerAddress(), new IOException());
+        }).doAnswer(invocation -> applyQueued()).when(bulkOperations).execute();
+
+        assertThatThrownBy(service::flush).isInstanceOf(MongoSocketWriteException.class);
+        service.incrementDirect(ALICE);
+        service.flush();
+
+        assertThat(service.getDirectUnread(ALICE)).isEqualTo(3);
+        assertThat(stored.get(ALICE).getDirectUnread()).isEqualTo(3);
+    }
+
+    @Test
+    void reconcileKeepsIncrementsMadeWhileRebuilding() {
+        UnreadCounterService service = new UnreadCounterService(mongoTemplate, properties(100));
+        service.incrementDirect(ALICE);
+        service.incrementGroup(ALICE, GROUP);
+
+        // The source collections hold 3 unread direct messages and 2 unread group messages;
+        // while the aggregate runs, one more direct message arrives and the group is read and then receives one more message
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Message.class), eq(Document.class))).thenAnswer(invocation -> {
+            service.incrementDirect(ALICE);
+            service.clearGroup(ALICE, GROUP);
+            service.incrementGroup(ALICE, GROUP);
+            return new AggregationResults<>(List.of(new Document("_id", ALICE).append("count", 3)), new Document());
+        });
+        ConversationSummary summary = new ConversationSummary();
+        summary.setOwnerId(ALICE);
+        summary.setPeerId(GROUP);
+        summary.setGroup(true);
+        summary.setUnreadCount(2);
+        when(mongoTemplate.stream(any(Query.class), eq(ConversationSummary.class))).thenReturn(Stream.of(summary));
+        when(mongoTemplate.stream(any(Query.class), eq(UnreadCounter.class))).thenReturn(Stream.empty());
+
+        service.reconcile();
+
+        assertThat(service.getDirectUnread(ALICE)).isEqualTo(4);
+        assertThat(service.getGroupUnread(ALICE)).containsExactlyEntriesOf(Map.of(GROUP, 1L));
+        assertThat(stored.get(ALICE).getDirectUnread()).isEqualTo(4);
+        assertThat(stored.get(ALICE).getGroupUnread()).containsExactlyEntriesOf(Map.of(GROUP, 1L));
+    }
+
+    @Test
+    void incrementsRacingEvictionAreNotLost() throws Exception {
+        // A single-entry cache evicts on nearly every increment that alternates between users
+        UnreadCounterService service = new UnreadCounterService(mongoTemplate, properties(1));
+        int threads = 8;
+        int incrementsPerThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    service.incrementDirect(i % 2 == 0 ? ALICE : BOB);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        service.flush();
+
+        long expectedPerUser = (long) threads * incrementsPerThread / 2;
+        assertThat(service.getDirectUnread(ALICE)).isEqualTo(expectedPerUser);
+        assertThat(service.getDirectUnread(BOB)).isEqualTo(expectedPerUser);
+        assertThat(stored.get(ALICE).getDirectUnread()).isEqualTo(expectedPerUser);
+        assertThat(stored.get(BOB).getDirectUnread()).isEqualTo(expectedPerUser);
+    }
+
+    private UnreadCounterProperties properties(int cacheMaxSize) {
+        UnreadCounterProperties properties = new UnreadCounterProperties();
+        properties.setCacheMaxSize(cacheMaxSize);
+        return properties;
+    }
+
+    // Routes findById, the seeding findAndModify, single upserts and bulk writes through the in-memory store
+    private void stubStore() {
+        lenient().when(mongoTemplate.findById(anyString(), eq(UnreadCounter.class))).thenAnswer(invocation -> copy(stored.get(invocation.<String>getArgument(0))));
+        lenient().when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UnreadCounter.class)))
+                .thenAnswer(invocation -> {
+                    apply(invocation.getArgument(0), invocation.getArgument(1));
+                    return copy(stored.get(invocation.<Query>getArgument(0).getQueryObject().getString("_id")));
+                });
+        lenient().when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(UnreadCounter.class))).thenAnswer(invocation -> {
+            apply(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        });
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounter.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.upsert(any(Query.class), any(Update.class))).thenAnswer(invocation -> queue(invocation.getArgument(0), invocation.getArgument(1)));
+        lenient().when(bulkOperations.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> queue(invocation.getArgument(0), invocation.getArgument(1)));
+        lenient().when(bulkOperations.execute()).thenAnswer(invocation -> applyQueued());
+    }
+
+    private synchronized BulkOperations queue(Query query, Update update) {
+        queuedWrites.add(Map.entry(query, update));
+        return bulkOperations;
+    }
+
+    private synchronized Object applyQueued() {
+        queuedWrites.forEach(write -> apply(write.getKey(), write.getValue()));
+        queuedWrites.clear();
+        return null;
+    }
+
+    private synchronized void apply(Query query, Update update) {
+        String email = query.getQueryObject().getString("_id");
+        Document operations = update.getUpdateObject();
+        UnreadCounter counter = stored.get(email);
+        if (counter == null) {
+            counter = new UnreadCounter();
+            counter.setId(email);
+            stored.put(email, counter);
+            apply(counter, (Document) operations.get("$setOnInsert"), false);
+        }
+        apply(counter, (Document) operations.get("$set"), false);
+        apply(counter, (Document) operations.get("$inc"), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void apply(UnreadCounter counter, Document fields, boolean increment) {
+        if (fields == null) {
+            return;
+        }
+        fields.forEach((field, value) -> {
+            if (field.equals("directUnread")) {
+                long current = increment ? counter.getDirectUnread() : 0;
+                counter.setDirectUnread(current + ((Number) value).longValue());
+            } else if (field.equals("groupUnread")) {
+                counter.setGroupUnread(new HashMap<>((Map<String, Long>) value));
+            } else {
+                String groupId = field.substring("groupUnread.".length());
+                long current = increment ? counter.getGroupUnread().getOrDefault(groupId, 0L) : 0;
+                counter.getGroupUnread().put(groupId, current + ((Number) value).longValue());
+            }
+        });
+    }
+
+    private static UnreadCounter copy(UnreadCounter counter) {
+        if (counter == null) {
+            return null;
+        }
+        UnreadCounter copy = new UnreadCounter();
+        copy.setId(counter.getId());
+        copy.setDirectUnread(counter.getDirectUnread());
+        copy.setGroupUnread(new HashMap<>(counter.getGroupUnread()));
+        return copy;
+    }
+}
@@ -17,6 +17,11 @@ import { apiClient } from "../../../../lib/api-client";
 import { GroupMessage } from "../../../../types/group";
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { CONFIG } from '../../../../config';
+import { WS_ROUTES } from '../../../../config/api-routes';
+import { realtimeClient } from '../../../../lib/realtime';
+
+// Matches the server's default page size; a shorter page means the start of the group's history was reached
+const PAGE_SIZE = 50;
 
 export default function GroupChatScreen() {
   const { id } = useLocalSearchParams();
@@ -26,6 +31,8 @@ export default function GroupChatScreen() {
   const [loading, setLoading] = useState(true);
   const [sending, setSending] = useState(false);
   const [refreshing, setRefreshing] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const [hasOlder, setHasOlder] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [currentUserEmail, setCurrentUserEmail] = useState<string>("");
   const [groupName, setGroupName] = useState<string>("");
@@ -59,6 +66,7 @@ export default function GroupChatScreen() {
       setError(null);
       const messagesData = await apiClient.getGroupMessages(id as string);
       setMessages(messagesData);
+      setHasOlder(messagesData.length >= PAGE_SIZE);
     } catch (error: any) {
       setError('Failed to load messages. Please try again.');
     } finally {
@@ -70,20 +78,51 @@ export default function GroupChatScreen() {
     loadGroupDetails();
   }, [loadGroupDetails]);
 
+  const addMessage = useCallback((message: GroupMessage) => {
+    setMessages((current) =>
+      current.some((m) => m.id === message.id) ? current : [message, ...current]
+    );
+  }, []);
+
   useEffect(() => {
     loadMessages();
-    const interval = setInterval(loadMessages, 5000);
-    return () => clearInterval(interval);
   }, [loadMessages]);
 
+  useEffect(() => {
+    return realtimeClient.subscribe<GroupMessage>(WS_ROUTES.GROUP_MESSAGES, (message) => {
+      if (message.groupId === id) {
+        addMessage(message);
+      }
+    });
+  }, [id, addMessage]);
+
+  const loadOlder = useCallback(async () => {
+    const oldest = messages[messages.length - 1];
+    if (!oldest || !hasOlder || loadingOlder) return;
+
+    setLoadingOlder(true);
+    try {
+      const older = await apiClient.getGroupMessages(id as string, oldest);
+      setMessages((current) => [
+        ...current,
+        ...older.filter((message) => !current.some((m) => m.id === message.id)),
+      ]);
+      setHasOlder(older.length >= PAGE_SIZE);
+    } catch (error: any) {
+      console.error('Failed to load older messages:', error);
+    } finally {
+      setLoadingOlder(false);
+    }
+  }, [id, messages, hasOlder, loadingOlder]);
+
   const handleSend = async () => {
     if (!newMessage.trim() || sending) return;
 
     setSending(true);
     try {
-      await apiClient.sendGroupMessage(id as string, newMessage.trim());
+      const message = await apiClient.sendGroupMessage(id as string, newMessage.trim());
       setNewMessage("");
-      await loadMessages();
+      addMessage(message);
     } catch (error: any) {
       Alert.alert('Error', 'Failed to send message. Please try again.');
     } finally {
@@ -182,6 +221,9 @@ export default function GroupChatScreen() {
           keyExtractor={(item) => item.id}
           contentContainerStyle={styles.messagesList}
           inverted={true}
+          onEndReached={loadOlder}
+          onEndReachedThreshold={0.2}
+          ListFooterComponent={loadingOlder ? <ActivityIndicator style={styles.olderIndicator} color="#007AFF" /> : null}
           ListEmptyComponent={
             <View style={[styles.emptyContainer]}>
               <Ionicons
@@ -378,6 +420,9 @@ const styles = StyleSheet.create({
     color: '#666',
     marginBottom: 4,
   },
+  olderIndicator: {
+    paddingVertical: 12,
+  },
   refreshIndicator: {
     flexDirection: 'row',
     alignItems: 'center',
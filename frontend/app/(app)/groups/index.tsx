@@ -11,10 +11,10 @@ import {
 import { useRouter } from "expo-router";
 import { Ionicons } from '@expo/vector-icons';
 import { apiClient } from "../../../lib/api-client";
-import { Group } from "../../../types/group";
+import { GroupSummary } from "../../../types/group";
 
 export default function GroupsScreen() {
-  const [groups, setGroups] = useState<Group[]>([]);
+  const [groups, setGroups] = useState<GroupSummary[]>([]);
   const [loading, setLoading] = useState(true);
   const [refreshing, setRefreshing] = useState(false);
   const router = useRouter();
@@ -40,7 +40,7 @@ export default function GroupsScreen() {
     setRefreshing(false);
   }, [loadGroups]);
 
-  const renderGroupItem = ({ item }: { item: Group; }) => (
+  const renderGroupItem = ({ item }: { item: GroupSummary; }) => (
     <TouchableOpacity
       style={styles.groupItem}
       onPress={() => router.push(`/groups/chat/${item.id}`)}
@@ -53,7 +53,7 @@ export default function GroupsScreen() {
       <View style={styles.groupInfo}>
         <Text style={styles.groupName}>{item.name || 'Unnamed Group'}</Text>
         <Text style={styles.memberCount}>
-          {item.members?.length || 0} members
+          {item.memberCount} members
         </Text>
       </View>
       <Ionicons
@@ -18,6 +18,11 @@ import { apiClient } from "../../../lib/api-client";
 import { Message } from "../../../types/message";
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { CONFIG } from '../../../config';
+import { WS_ROUTES } from '../../../config/api-routes';
+import { realtimeClient } from '../../../lib/realtime';
+
+// Matches the server's default page size; a shorter page means the start of the conversation was reached
+const PAGE_SIZE = 50;
 
 export default function ChatScreen() {
   const { id } = useLocalSearchParams();
@@ -26,6 +31,8 @@ export default function ChatScreen() {
   const [loading, setLoading] = useState(true);
   const [sending, setSending] = useState(false);
   const [refreshing, setRefreshing] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const [hasOlder, setHasOlder] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [currentUserEmail, setCurrentUserEmail] = useState<string>("");
   const flatListRef = useRef<FlatList>(null);
@@ -35,6 +42,8 @@ export default function ChatScreen() {
       setError(null);
       const data = await apiClient.getMessages(decodeURIComponent(id as string));
       setMessages(data);
+      setHasOlder(data.length >= PAGE_SIZE);
+      apiClient.markConversationRead(decodeURIComponent(id as string)).catch(() => {});
     } catch (error: any) {
       console.error('Failed to load messages:', error);
       setError('Failed to load messages. Please try again.');
@@ -43,12 +52,47 @@ export default function ChatScreen() {
     }
   }, [id]);
 
+  const addMessage = useCallback((message: Message) => {
+    setMessages((current) =>
+      current.some((m) => m.id === message.id) ? current : [message, ...current]
+    );
+  }, []);
+
   useEffect(() => {
     loadMessages();
-    const interval = setInterval(loadMessages, 5000);
-    return () => clearInterval(interval);
   }, [loadMessages]);
 
+  useEffect(() => {
+    const otherEmail = decodeURIComponent(id as string);
+    return realtimeClient.subscribe<Message>(WS_ROUTES.DIRECT_MESSAGES, (message) => {
+      if (message.senderId === otherEmail || message.recipientId === otherEmail) {
+        addMessage(message);
+        if (message.senderId === otherEmail) {
+          apiClient.markConversationRead(otherEmail).catch(() => {});
+        }
+      }
+    });
+  }, [id, addMessage]);
+
+  const loadOlder = useCallback(async () => {
+    const oldest = messages[messages.length - 1];
+    if (!oldest || !hasOlder || loadingOlder) return;
+
+    setLoadingOlder(true);
+    try {
+      const older = await apiClient.getMessages(decodeURIComponent(id as string), oldest);
+      setMessages((current) => [
+        ...current,
+        ...older.filter((message) => !current.some((m) => m.id === message.id)),
+      ]);
+      setHasOlder(older.length >= PAGE_SIZE);
+    } catch (error: any) {
+      console.error('Failed to load older messages:', error);
+    } finally {
+      setLoadingOlder(false);
+    }
+  }, [id, messages, hasOlder, loadingOlder]);
+
   const onRefresh = useCallback(async () => {
     setRefreshing(true);
     await loadMessages();
@@ -60,9 +104,9 @@ export default function ChatScreen() {
 
     setSending(true);
     try {
-      await apiClient.sendMessage(decodeURIComponent(id as string), newMessage.trim());
+      const message = await apiClient.sendMessage(decodeURIComponent(id as string), newMessage.trim());
       setNewMessage("");
-      await loadMessages();
+      addMessage(message);
     } catch (error: any) {
       console.error('Failed to send message:', error);
       Alert.alert('Error', 'Failed to send message. Please try again.');
@@ -178,6 +222,9 @@ export default function ChatScreen() {
           keyExtractor={(item) => item.id}
           contentContainerStyle={styles.messagesList}
           inverted={true}
+          onEndReached={loadOlder}
+          onEndReachedThreshold={0.2}
+          ListFooterComponent={loadingOlder ? <ActivityIndicator style={styles.olderIndicator} color="#007AFF" /> : null}
           ListEmptyComponent={
             <View style={[styles.emptyContainer]}>
               <Ionicons
@@ -373,6 +420,9 @@ const styles = StyleSheet.create({
     color: '#666',
     marginBottom: 4,
   },
+  olderIndicator: {
+    paddingVertical: 12,
+  },
   refreshIndicator: {
     flexDirection: 'row',
     alignItems: 'center',
@@ -21,15 +21,24 @@ export default function MessagesScreen() {
 
   const loadChats = useCallback(async () => {
     try {
-      const friends = await apiClient.getFriends();
+      const [friends, conversations] = await Promise.all([
+        apiClient.getFriends(),
+        apiClient.getRecentConversations(),
+      ]);
+      const summaries = new Map(
+        conversations
+          .filter(conversation => !conversation.group)
+          .map(conversation => [conversation.peerId, conversation])
+      );
       const chatUsers = friends
         .map(friend => ({
           email: friend.email,
           firstName: friend.firstName,
           lastName: friend.lastName,
-          lastMessage: undefined,
-          lastMessageTime: undefined,
-        }));
+          lastMessage: summaries.get(friend.email)?.lastMessageContent ?? undefined,
+          lastMessageTime: summaries.get(friend.email)?.lastMessageTimestamp ?? undefined,
+        }))
+        .sort((a, b) => (b.lastMessageTime ?? '').localeCompare(a.lastMessageTime ?? ''));
       setChats(chatUsers);
     } catch (error) {
       console.error('Failed to load chats:', error);
@@ -4,12 +4,15 @@ export const API_ROUTES = {
     AUTH: {
         LOGIN: `${BASE_URL}/login`,
         REGISTER: `${BASE_URL}/register`,
+        REFRESH: `${BASE_URL}/refresh`,
+        LOGOUT: `${BASE_URL}/logout`,
     },
     FRIENDS: {
         LIST: `${BASE_URL}/friends`,
         ADD: `${BASE_URL}/friends/add`,
         ACCEPT: `${BASE_URL}/friends/accept`,
         PENDING: `${BASE_URL}/friends/pending`,
+        RESPOND: `${BASE_URL}/friends/pending/respond`,
     },
     GROUPS: {
         LIST: `${BASE_URL}/groups`,
@@ -17,11 +20,23 @@ export const API_ROUTES = {
         DETAILS: (groupId: string) => `${BASE_URL}/groups/${groupId}`,
         ADD_MEMBER: (groupId: string) => `${BASE_URL}/groups/${groupId}/add-member`,
         MEMBERS: (groupId: string) => `${BASE_URL}/groups/${groupId}/members`,
-        MESSAGES: (groupId: string) => `${BASE_URL}/groups/${groupId}/messages`,
+        MESSAGES: (groupId: string, before?: { timestamp: string; id: string }) =>
+            `${BASE_URL}/groups/${groupId}/messages${before ? `?before=${encodeURIComponent(before.timestamp)}&beforeId=${encodeURIComponent(before.id)}` : ''}`,
         SEND_MESSAGE: (groupId: string) => `${BASE_URL}/groups/${groupId}/send`,
     },
     MESSAGES: {
         SEND: `${BASE_URL}/messages/send`,
-        GET_HISTORY: (otherEmail: string) => `${BASE_URL}/messages?otherEmail=${encodeURIComponent(otherEmail)}`,
+        GET_HISTORY: (otherEmail: string, before?: { timestamp: string; id: string }) =>
+            `${BASE_URL}/messages?otherEmail=${encodeURIComponent(otherEmail)}${before ? `&before=${encodeURIComponent(before.timestamp)}&beforeId=${encodeURIComponent(before.id)}` : ''}`,
+        RECENT: `${BASE_URL}/messages/recent`,
+        MARK_READ: (otherEmail: string) => `${BASE_URL}/messages/read?otherEmail=${encodeURIComponent(otherEmail)}`,
+        SEARCH: (query: string, cursor?: string) =>
+            `${BASE_URL}/messages/search?q=${encodeURIComponent(query)}${cursor ? `&cursor=${encodeURIComponent(cursor)}` : ''}`,
     },
 };
+
+export const WS_ROUTES = {
+    STOMP: `${BASE_URL.replace(/^http/, 'ws')}/ws`,
+    DIRECT_MESSAGES: '/user/queue/messages',
+    GROUP_MESSAGES: '/user/queue/group-messages',
+};
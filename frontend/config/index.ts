@@ -18,5 +18,6 @@ export const BASE_URL = getBaseUrl();
 export const CONFIG = {
     API_URL: BASE_URL,
     TOKEN_STORAGE_KEY: 'userToken',
+    REFRESH_TOKEN_STORAGE_KEY: 'userRefreshToken',
     EMAIL_STORAGE_KEY: '@user_email',
 };
@@ -1,5 +1,6 @@
 import { createContext, useContext, useState, useEffect } from 'react';
 import AsyncStorage from '@react-native-async-storage/async-storage';
+import { apiClient } from '../lib/api-client';
 
 type AuthContextType = {
   isAuthenticated: boolean;
@@ -42,8 +43,10 @@ export function AuthProvider({ children }: { children: React.ReactNode; }) {
   }
 
   async function signOut() {
+    // Ends the session on the server too; local sign-out goes ahead even if that fails
+    await apiClient.logout().catch(() => undefined);
     try {
-      await AsyncStorage.removeItem('userToken');
+      await AsyncStorage.multiRemove(['userToken', 'userRefreshToken']);
       setToken(null);
       setIsAuthenticated(false);
     } catch (error) {
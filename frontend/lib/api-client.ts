@@ -2,9 +2,9 @@ import AsyncStorage from '@react-native-async-storage/async-storage';
 import { CONFIG } from '../config';
 import { API_ROUTES } from '../config/api-routes';
 import { Friend } from '@/types/friend';
-import { Message } from '@/types/message';
-import { Group, GroupMessage } from '@/types/group';
-import { FriendRequest } from '@/types/friend-request';
+import { ConversationSummary, Message, MessageSearchResponse } from '@/types/message';
+import { Group, GroupMessage, GroupSummary } from '@/types/group';
+import { FriendRequest, FriendRequestBatchResponse } from '@/types/friend-request';
 
 interface ApiResponse<T> {
     data?: T;
@@ -22,7 +22,25 @@ interface SuccessResponse {
     message: string;
 }
 
+interface TokenResponse {
+    token: string;
+    refreshToken: string;
+    expiresIn: number;
+}
+
+interface CachedResponse {
+    etag: string;
+    data: unknown;
+}
+
 class ApiClient {
+    // Last body per URL with its ETag, so unchanged lists come back as an empty 304
+    private responseCache = new Map<string, CachedResponse>();
+    // Concurrent 401s share one refresh: a refresh token works once, and presenting it twice can end the session
+    private refreshInFlight: Promise<boolean> | null = null;
+    // Epoch ms; 0 when unknown, e.g. after an app restart
+    private accessTokenExpiresAt = 0;
+
     private async getHeaders(): Promise<Headers> {
         const headers = new Headers({
             'Content-Type': 'application/json',
@@ -36,6 +54,67 @@ class ApiClient {
         return headers;
     };
 
+    // Access tokens are short-lived: on a 401, trade the refresh token for a new pair once and retry
+    private async fetchWithRefresh(url: string, init: RequestInit): Promise<Response> {
+        const sentAuthorization = new Headers(init.headers).get('Authorization');
+        const response = await fetch(url, init);
+        if (response.status !== 401 || !sentAuthorization) {
+            return response;
+        }
+        // Another request may have refreshed while this one was in flight; then just retry with the new token
+        const current = await AsyncStorage.getItem(CONFIG.TOKEN_STORAGE_KEY);
+        const renewed = (current !== null && `Bearer ${current}` !== sentAuthorization) || await this.refreshSession();
+        if (!renewed) {
+            return response;
+        }
+        const headers = new Headers(init.headers);
+        headers.set('Authorization', `Bearer ${await AsyncStorage.getItem(CONFIG.TOKEN_STORAGE_KEY)}`);
+        return fetch(url, { ...init, headers });
+    }
+
+    refreshSession(): Promise<boolean> {
+        if (!this.refreshInFlight) {
+            this.refreshInFlight = this.refreshTokens().finally(() => {
+                this.refreshInFlight = null;
+            });
+        }
+        return this.refreshInFlight;
+    }
+
+    // For connections that cannot retry on a 401 themselves, such as the STOMP socket
+    async getAccessToken(): Promise<string | null> {
+        if (this.accessTokenExpiresAt && Date.now() > this.accessTokenExpiresAt - 60_000) {
+            await this.refreshSession();
+        }
+        return AsyncStorage.getItem(CONFIG.TOKEN_STORAGE_KEY);
+    }
+
+    private async refreshTokens(): Promise<boolean> {
+        const refreshToken = await AsyncStorage.getItem(CONFIG.REFRESH_TOKEN_STORAGE_KEY);
+        if (!refreshToken) {
+            return false;
+        }
+        const response = await fetch(API_ROUTES.AUTH.REFRESH, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ refreshToken }),
+        });
+        if (!response.ok) {
+            await AsyncStorage.removeItem(CONFIG.REFRESH_TOKEN_STORAGE_KEY);
+            return false;
+        }
+        await this.storeTokens(await response.json());
+        return true;
+    }
+
+    private async storeTokens(tokens: TokenResponse) {
+        this.accessTokenExpiresAt = Date.now() + tokens.expiresIn * 1000;
+        await AsyncStorage.multiSet([
+            [CONFIG.TOKEN_STORAGE_KEY, tokens.token],
+            [CONFIG.REFRESH_TOKEN_STORAGE_KEY, tokens.refreshToken],
+        ]);
+    }
+
     private async handleResponse<T>(response: Response): Promise<ApiResponse<T>> {
         const data = await response.json();
 
@@ -53,12 +132,23 @@ class ApiClient {
     async get<T>(url: string): Promise<T> {
         try {
             const headers = await this.getHeaders();
-            const response = await fetch(url, {
+            const cached = this.responseCache.get(url);
+            if (cached) {
+                headers.append('If-None-Match', cached.etag);
+            }
+            const response = await this.fetchWithRefresh(url, {
                 method: 'GET',
                 headers,
             });
+            if (response.status === 304 && cached) {
+                return cached.data as T;
+            }
             const { data, error } = await this.handleResponse<T>(response);
             if (error) throw new Error(error);
+            const etag = response.headers.get('ETag');
+            if (etag) {
+                this.responseCache.set(url, { etag, data });
+            }
             return data as T;
         } catch (error: any) {
             throw new Error(error.message || 'Network request failed');
@@ -68,7 +158,7 @@ class ApiClient {
     async post<T>(url: string, body: any): Promise<T> {
         try {
             const headers = await this.getHeaders();
-            const response = await fetch(url, {
+            const response = await this.fetchWithRefresh(url, {
                 method: 'POST',
                 headers,
                 body: JSON.stringify(body),
@@ -82,9 +172,19 @@ class ApiClient {
     }
 
     // Auth methods
-    async login(email: string, password: string): Promise<{ token: string; }> {
+    async login(email: string, password: string): Promise<TokenResponse> {
+        this.responseCache.clear();
         await AsyncStorage.setItem(CONFIG.EMAIL_STORAGE_KEY, email);
-        return this.post(API_ROUTES.AUTH.LOGIN, { email, password });
+        const tokens = await this.post<TokenResponse>(API_ROUTES.AUTH.LOGIN, { email, password });
+        await this.storeTokens(tokens);
+        return tokens;
+    }
+    async logout(): Promise<void> {
+        const refreshToken = await AsyncStorage.getItem(CONFIG.REFRESH_TOKEN_STORAGE_KEY);
+        this.responseCache.clear();
+        if (refreshToken) {
+            await this.post(API_ROUTES.AUTH.LOGOUT, { refreshToken });
+        }
     }
     async register(data: RegisterRequest): Promise<void> {
         return this.post(API_ROUTES.AUTH.REGISTER, data);
@@ -103,12 +203,25 @@ class ApiClient {
     async getPendingFriendRequests(): Promise<FriendRequest[]> {
         return this.get(API_ROUTES.FRIENDS.PENDING);
     }
+    async respondToFriendRequests(accept: string[], decline: string[]): Promise<FriendRequestBatchResponse> {
+        return this.post(API_ROUTES.FRIENDS.RESPOND, { accept, decline });
+    }
 
     // Messages methods
-    async getMessages(otherEmail: string): Promise<Message[]> {
-        return this.get(API_ROUTES.MESSAGES.GET_HISTORY(otherEmail));
+    // Newest first; pass the oldest message already shown to get the page before it
+    async getMessages(otherEmail: string, before?: Message): Promise<Message[]> {
+        return this.get(API_ROUTES.MESSAGES.GET_HISTORY(otherEmail, before && { timestamp: before.timestamp, id: before.id }));
+    }
+    async getRecentConversations(): Promise<ConversationSummary[]> {
+        return this.get(API_ROUTES.MESSAGES.RECENT);
+    }
+    async markConversationRead(otherEmail: string): Promise<SuccessResponse> {
+        return this.post(API_ROUTES.MESSAGES.MARK_READ(otherEmail), {});
+    }
+    async searchMessages(query: string, cursor?: string): Promise<MessageSearchResponse> {
+        return this.get(API_ROUTES.MESSAGES.SEARCH(query, cursor));
     }
-    async sendMessage(otherEmail: string, content: string) {
+    async sendMessage(otherEmail: string, content: string): Promise<Message> {
         return this.post(API_ROUTES.MESSAGES.SEND, {
             recipientEmail: otherEmail,
             content
@@ -116,7 +229,7 @@ class ApiClient {
     }
 
     // Groups methods
-    async getGroups(): Promise<Group[]> {
+    async getGroups(): Promise<GroupSummary[]> {
         return this.get(API_ROUTES.GROUPS.LIST);
     }
     async createGroup(name: string, memberEmails: string[]) {
@@ -130,10 +243,11 @@ class ApiClient {
     async getGroupMembers(groupId: string): Promise<string[]> {
         return this.get(API_ROUTES.GROUPS.MEMBERS(groupId));
     }
-    async getGroupMessages(groupId: string): Promise<GroupMessage[]> {
-        return this.get(API_ROUTES.GROUPS.MESSAGES(groupId));
+    // Newest first; pass the oldest message already shown to get the page before it
+    async getGroupMessages(groupId: string, before?: GroupMessage): Promise<GroupMessage[]> {
+        return this.get(API_ROUTES.GROUPS.MESSAGES(groupId, before && { timestamp: before.timestamp, id: before.id }));
     }
-    async sendGroupMessage(groupId: string, content: string) {
+    async sendGroupMessage(groupId: string, content: string): Promise<GroupMessage> {
         return this.post(API_ROUTES.GROUPS.SEND_MESSAGE(groupId), { content });
     }
 }
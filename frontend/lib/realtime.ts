@@ -0,0 +1,125 @@
+import { WS_ROUTES } from '../config/api-routes';
+import { apiClient } from './api-client';
+
+type Handler<T> = (payload: T) => void;
+
+interface Subscription {
+    id: string;
+    destination: string;
+    handler: Handler<any>;
+}
+
+// Minimal STOMP 1.2 client over the native WebSocket, used for server push
+class RealtimeClient {
+    private socket: WebSocket | null = null;
+    private connected = false;
+    private nextId = 0;
+    private subscriptions = new Map<string, Subscription>();
+    private reconnectTimer: ReturnType<typeof setTimeout> | null = null;
+    // Set when the server refused the CONNECT, most likely because the access token expired
+    private authRejected = false;
+
+    private sendFrame(command: string, headers: Record<string, string>) {
+        const headerLines = Object.entries(headers).map(([key, value]) => `${key}:${value}`);
+        this.socket?.send(`${command}\n${headerLines.join('\n')}\n\n\0`);
+    }
+
+    private async connect() {
+        if (this.socket) return;
+
+        // The socket cannot retry on a 401, so renew an expiring or rejected token before connecting
+        if (this.authRejected) {
+            this.authRejected = false;
+            await apiClient.refreshSession();
+        }
+        const token = await apiClient.getAccessToken();
+        if (!token || this.socket) return;
+
+        const socket = new WebSocket(WS_ROUTES.STOMP);
+        this.socket = socket;
+
+        socket.onopen = () => {
+            this.sendFrame('CONNECT', {
+                'accept-version': '1.2',
+                'heart-beat': '0,0',
+                'Authorization': `Bearer ${token}`,
+            });
+        };
+
+        socket.onmessage = (event) => {
+            String(event.data).split('\0').forEach((frame) => this.handleFrame(frame));
+        };
+
+        socket.onclose = () => {
+            this.socket = null;
+            this.connected = false;
+            this.scheduleReconnect();
+        };
+    }
+
+    private scheduleReconnect() {
+        if (this.subscriptions.size === 0 || this.reconnectTimer) return;
+
+        this.reconnectTimer = setTimeout(() => {
+            this.reconnectTimer = null;
+            this.connect();
+        }, 3000);
+    }
+
+    private handleFrame(raw: string) {
+        const frame = raw.replace(/^\n+/, '');
+        if (!frame) return;
+
+        const headerEnd = frame.indexOf('\n\n');
+        const head = headerEnd === -1 ? frame : frame.substring(0, headerEnd);
+        const body = headerEnd === -1 ? '' : frame.substring(headerEnd + 2);
+        const [command, ...headerLines] = head.split('\n');
+        const headers: Record<string, string> = {};
+        headerLines.forEach((line) => {
+            const separator = line.indexOf(':');
+            headers[line.substring(0, separator)] = line.substring(separator + 1);
+        });
+
+        if (command === 'CONNECTED') {
+            this.connected = true;
+            this.subscriptions.forEach((subscription) => this.sendSubscribe(subscription));
+        } else if (command === 'MESSAGE') {
+            const subscription = this.subscriptions.get(headers['subscription']);
+            if (subscription && body) {
+                subscription.handler(JSON.parse(body));
+            }
+        } else if (command === 'ERROR') {
+            // The server closes the socket after an ERROR; the reconnect refreshes first if we never got CONNECTED
+            this.authRejected = !this.connected;
+            console.error('Realtime connection error:', headers['message']);
+        }
+    }
+
+    private sendSubscribe(subscription: Subscription) {
+        this.sendFrame('SUBSCRIBE', { id: subscription.id, destination: subscription.destination });
+    }
+
+    subscribe<T>(destination: string, handler: Handler<T>): () => void {
+        const subscription = { id: `sub-${this.nextId++}`, destination, handler };
+        this.subscriptions.set(subscription.id, subscription);
+
+        if (this.connected) {
+            this.sendSubscribe(subscription);
+        } else {
+            this.connect();
+        }
+
+        return () => {
+            this.subscriptions.delete(subscription.id);
+            if (this.connected) {
+                this.sendFrame('UNSUBSCRIBE', { id: subscription.id });
+            }
+            if (this.subscriptions.size === 0 && this.socket) {
+                if (this.connected) this.sendFrame('DISCONNECT', {});
+                this.socket.close();
+            }
+        };
+    }
+}
+
+export const realtimeClient = new RealtimeClient();
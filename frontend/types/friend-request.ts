@@ -1,8 +1,10 @@
 export interface FriendRequest {
     id: string;
     senderId: string;
-    receiverId: string;
-    status: 'PENDING' | 'ACCEPTED' | 'REJECTED';
     createdAt: string;
-    updatedAt: string;
+};
+
+export interface FriendRequestBatchResponse {
+    accepted: string[];
+    declined: string[];
 };
\ No newline at end of file
@@ -4,7 +4,14 @@ export interface Group {
     creatorId: string;
     members: string[];
     createdAt: string;
-    updatedAt: string;
+}
+
+export interface GroupSummary {
+    id: string;
+    name: string;
+    creatorId: string;
+    memberCount: number;
+    lastMessageTimestamp: string | null;
 }
 
 export interface GroupMessage {
@@ -14,9 +21,6 @@ export interface GroupMessage {
     content: string;
     timestamp: string;
     groupId: string;
-    readAt: string | null;
-    deletedAt: string | null;
-    deleted: boolean;
     read: boolean;
     groupMessage: boolean;
 }
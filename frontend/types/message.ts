@@ -1,16 +1,31 @@
 export interface Message {
     id: string;
     content: string;
-    deleted: boolean;
-    deletedAt: string | null;
     groupMessage: boolean;
     read: boolean;
-    readAt: string | null;
     senderId: string;
     recipientId: string;
+    groupId?: string | null;
     timestamp: string;
 }
 
+export interface MessageSearchResponse {
+    messages: Message[];
+    nextCursor: string | null;
+}
+
+export interface ConversationSummary {
+    id: string;
+    ownerId: string;
+    peerId: string;
+    group: boolean;
+    lastMessageId: string | null;
+    lastMessageSenderId: string | null;
+    lastMessageContent: string | null;
+    lastMessageTimestamp: string | null;
+    unreadCount: number;
+}
+
 export interface ChatUser {
     email: string;
     firstName: string;